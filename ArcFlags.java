@@ -0,0 +1,209 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * ArcFlags.java
+ * Arc-flags preprocessing (--arc-flags k): the graph is split into k <= 64 regions and
+ * every arc gets one bit per region, set if the arc starts some shortest route into that
+ * region. A* / uniform-cost search toward a goal then skips arcs whose bit for the goal's
+ * region is clear; at least one shortest route always stays fully flagged.
+ *
+ * Regions are grown by breadth-first search from k seeds picked farthest-first by hop
+ * count, each city joining the region of the seed that reaches it first. Cities outside
+ * the seeds' component go to region 0; their arcs all stay inside one region.
+ * Flags for region r:
+ *   - every arc with both ends in r (the last part of a route, after it entered r);
+ *   - the shortest-path tree from each boundary city b of r (a city of r with a neighbour
+ *     outside it): for each city u, the arc from u toward its tree parent, since the tree
+ *     route u..b is as short as any route from u that enters r at b.
+ * The boundary trees are independent full Dijkstra runs, one task per region spread over
+ * the worker pool; a task collects its region's bit in a bitset over the arcs (1 bit per
+ * arc) and ORs it into the shared flags when done.
+ * A region with more than BOUNDARY_LIMIT boundary cities (common in scale-free graphs,
+ * which have no small separators) is flagged on every arc instead: searches toward it
+ * are not pruned, but preprocessing stays bounded. unprunedRegions() reports how many.
+ */
+final class ArcFlags {
+
+    static final int MAX_REGIONS = 64; // one long of flags per arc
+    static final int BOUNDARY_LIMIT = 1024; // shortest-path trees one region may cost
+
+    private final int[] region;   // city id -> region
+    final long[] flags;           // arc id -> bit r set if the arc is kept toward region r
+    private final long unpruned;  // regions flagged on every arc (too many boundary cities)
+
+    private ArcFlags(int[] region, long[] flags, long unpruned) {
+        this.region = region;
+        this.flags = flags;
+        this.unpruned = unpruned;
+    }
+
+    /** Regions whose searches are not pruned because their boundary exceeded BOUNDARY_LIMIT. */
+    int unprunedRegions() { return Long.bitCount(unpruned); }
+
+    /** Bit of the goal's region; arc e may be skipped toward goal if (flags[e] & bit) == 0. */
+    long goalBit(int goal) { return 1L << region[goal]; }
+
+    // ===== Preprocessing =====
+    static ArcFlags build(Graph graph, int regions, ForkJoinPool pool) {
+        int n = graph.nodeCount();
+        regions = Math.max(1, Math.min(Math.min(regions, MAX_REGIONS), n));
+        int[] region = partition(graph, regions);
+
+        long[] flags = new long[graph.arcCount()];
+        boolean[] isBoundary = new boolean[n];
+        int[] boundaryCount = new int[regions];
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                if (region[graph.targets[e]] == region[v]) flags[e] |= 1L << region[v];
+                else isBoundary[v] = true;
+            }
+            if (isBoundary[v]) boundaryCount[region[v]]++;
+        }
+        long unpruned = 0L; // regions whose boundary is too large to run a tree per city
+        for (int r = 0; r < regions; r++) {
+            if (boundaryCount[r] > BOUNDARY_LIMIT) unpruned |= 1L << r;
+        }
+        List<List<Integer>> boundary = new ArrayList<>(regions); // boundary cities by region
+        for (int r = 0; r < regions; r++) boundary.add(new ArrayList<>());
+        for (int v = 0; v < n; v++) {
+            if (isBoundary[v] && (unpruned & 1L << region[v]) == 0) boundary.get(region[v]).add(v);
+        }
+        if (unpruned != 0) {
+            for (int e = 0; e < flags.length; e++) flags[e] |= unpruned;
+        }
+
+        // One task per region: its trees mark a private bitset, merged under the flags' lock
+        List<Callable<Void>> tasks = new ArrayList<>(regions);
+        ThreadLocal<Tree> trees = ThreadLocal.withInitial(() -> new Tree(graph));
+        for (int r = 0; r < regions; r++) {
+            final List<Integer> cities = boundary.get(r);
+            final long bit = 1L << r;
+            if (cities.isEmpty()) continue;
+            tasks.add(() -> {
+                long[] marked = new long[(flags.length + 63) >>> 6];
+                Tree tree = trees.get();
+                for (int b : cities) tree.flagToward(b, marked);
+                synchronized (flags) {
+                    for (int w = 0; w < marked.length; w++) {
+                        for (long bits = marked[w]; bits != 0; bits &= bits - 1) {
+                            flags[(w << 6) + Long.numberOfTrailingZeros(bits)] |= bit;
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> done : pool.invokeAll(tasks)) done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing arc flags", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Arc-flag preprocessing failed", e.getCause());
+        }
+        return new ArcFlags(region, flags, unpruned);
+    }
+
+    /** Region of every city: breadth-first growth from farthest-first seeds. */
+    private static int[] partition(Graph graph, int regions) {
+        int n = graph.nodeCount();
+        int[] hops = new int[n];
+        int[] queue = new int[n];
+        int[] seeds = new int[regions];
+        seeds[0] = farthest(graph, new int[] { 0 }, 1, hops, queue);
+        for (int i = 1; i < regions; i++) seeds[i] = farthest(graph, seeds, i, hops, queue);
+
+        int[] region = new int[n]; // cities no seed reaches stay in region 0
+        Arrays.fill(hops, -1);
+        int head = 0, tail = 0;
+        for (int i = 0; i < regions; i++) {
+            if (hops[seeds[i]] >= 0) continue; // a tiny graph can repeat a seed
+            hops[seeds[i]] = 0;
+            region[seeds[i]] = i;
+            queue[tail++] = seeds[i];
+        }
+        while (head < tail) {
+            int v = queue[head++];
+            for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                int to = graph.targets[e];
+                if (hops[to] >= 0) continue;
+                hops[to] = hops[v] + 1;
+                region[to] = region[v];
+                queue[tail++] = to;
+            }
+        }
+        return region;
+    }
+
+    /** The city most hops away from the first `count` seeds (within their component) that is not a seed. */
+    private static int farthest(Graph graph, int[] seeds, int count, int[] hops, int[] queue) {
+        Arrays.fill(hops, -1);
+        int head = 0, tail = 0;
+        for (int i = 0; i < count; i++) {
+            if (hops[seeds[i]] >= 0) continue;
+            hops[seeds[i]] = 0;
+            queue[tail++] = seeds[i];
+        }
+        int last = seeds[0];
+        while (head < tail) {
+            int v = queue[head++];
+            if (hops[v] > 0) last = v;
+            for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                int to = graph.targets[e];
+                if (hops[to] >= 0) continue;
+                hops[to] = hops[v] + 1;
+                queue[tail++] = to;
+            }
+        }
+        return last;
+    }
+
+    /** One worker's shortest-path trees (plain Dijkstra). */
+    private static final class Tree {
+        final Graph graph;
+        final IndexedHeap heap;
+        final SearchContext labels;
+
+        Tree(Graph graph) {
+            this.graph = graph;
+            int n = graph.nodeCount();
+            heap = new IndexedHeap(n, 4, graph.nameRank);
+            labels = new SearchContext(n, heap);
+        }
+
+        /** Marks, in the arc bitset `out`, every arc from a city toward its parent in the tree rooted at b. */
+        void flagToward(int b, long[] out) {
+            labels.reset();
+            heap.clear();
+            labels.label(b, 0.0, -1, 0);
+            heap.push(b, 0.0, 0.0);
+            while (!heap.isEmpty()) {
+                int v = heap.pop();
+                double gv = labels.g(v);
+                int p = labels.parent(v);
+                if (p >= 0) {
+                    int e = lightestArc(v, p);
+                    out[e >>> 6] |= 1L << e;
+                }
+                for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                    int to = graph.targets[e];
+                    double ng = gv + graph.weights[e];
+                    if (ng < labels.g(to)) {
+                        labels.label(to, ng, v, 0);
+                        heap.push(to, ng, ng);
+                    }
+                }
+            }
+        }
+
+        /** The cheapest of the parallel arcs v -> p (the one the tree used). */
+        private int lightestArc(int v, int p) {
+            int best = -1;
+            for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                if (graph.targets[e] == p && (best < 0 || graph.weights[e] < graph.weights[best])) best = e;
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * BatchRunner.java
+ * --queries mode: the graph is loaded once and every "StartCity GoalCity" line of a
+ * query file is run through FindRoute.search, streaming each Result as soon as it
+ * is found, followed by its own timing and a total at the end.
+ * With more than one thread the queries of each block are spread over a work-stealing
+ * ForkJoinPool; a worker borrows one FindRoute workspace (labels, fringe) for each run of
+ * up to GRAIN queries and searches the shared, immutable graph with it, and results are
+ * still printed in query-file order.
+ * For uniform-cost search the queries of a block are solved grouped by start city, so
+ * each run resumes its workspace's shortest-path tree from one goal to the next (SourceTree)
+ * instead of searching from scratch; the printed results are the same.
+ */
+final class BatchRunner {
+
+    static final class Query {
+        final String start, goal;
+        Query(String start, String goal) { this.start = start; this.goal = goal; }
+    }
+
+    private static final int BLOCK = 4096; // queries solved before their results are printed
+    private static final int GRAIN = 16;   // queries a worker solves in a row with one borrowed workspace
+
+    private BatchRunner() { }
+
+    /** Reads "StartCity GoalCity" lines; blank and short lines are skipped, END / END OF INPUT stops. */
+    static List<Query> readQueries(String queryFile) throws IOException {
+        List<Query> queries = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(queryFile))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.equalsIgnoreCase("END") || line.equalsIgnoreCase("END OF INPUT")) break;
+                String[] parts = line.split("\\s+");
+                if (parts.length < 2) continue;
+                queries.add(new Query(parts[0], parts[1]));
+            }
+        }
+        return queries;
+    }
+
+    static void run(FindRoute app, List<Query> queries, String algo, int threads, PrintStream out) {
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        boolean reuse = app.canReuseTrees(algo);
+        long busy = 0;
+        long wall0 = System.nanoTime();
+        try {
+            for (int from = 0; from < queries.size(); from += BLOCK) {
+                int to = Math.min(queries.size(), from + BLOCK);
+                FindRoute.Result[] results = new FindRoute.Result[to - from];
+                long[] nanos = new long[to - from];
+                int[] order = solveOrder(queries, from, to, reuse);
+                Solve block = new Solve(app, queries, algo, reuse, order, from, from, to, results, nanos);
+                if (pool == null) block.compute();
+                else pool.invoke(block);
+
+                for (int i = from; i < to; i++) {
+                    Query q = queries.get(i);
+                    out.printf("%nQuery %d: %s -> %s%n", i + 1, q.start, q.goal);
+                    results[i - from].print(out);
+                    out.printf("Time: %.3f ms%n", nanos[i - from] / 1e6);
+                    busy += nanos[i - from];
+                }
+            }
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+        printSummary(out, queries.size(), Math.max(threads, 1), System.nanoTime() - wall0, busy);
+        String cacheStats = app.cacheStats();
+        if (cacheStats != null) out.println(cacheStats);
+    }
+
+    /** Query indices of [from, to) in solving order: file order, or grouped by start (stable) to reuse trees. */
+    private static int[] solveOrder(List<Query> queries, int from, int to, boolean byStart) {
+        Integer[] order = new Integer[to - from];
+        for (int i = from; i < to; i++) order[i - from] = i;
+        if (byStart) Arrays.sort(order, (a, b) -> queries.get(a).start.compareTo(queries.get(b).start));
+        int[] out = new int[order.length];
+        for (int i = 0; i < out.length; i++) out[i] = order[i];
+        return out;
+    }
+
+    /** Solves queries [lo, hi) of the current block, splitting in halves so idle workers can steal. */
+    private static final class Solve extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final FindRoute app;
+        final List<Query> queries;
+        final String algo;
+        final boolean reuse;  // resume the workspace's SourceTree for queries sharing a start
+        final int[] order;    // position in the block -> query index
+        final int base, lo, hi;
+        final FindRoute.Result[] results;
+        final long[] nanos;
+
+        Solve(FindRoute app, List<Query> queries, String algo, boolean reuse, int[] order, int base, int lo, int hi,
+              FindRoute.Result[] results, long[] nanos) {
+            this.app = app;
+            this.queries = queries;
+            this.algo = algo;
+            this.reuse = reuse;
+            this.order = order;
+            this.base = base;
+            this.lo = lo;
+            this.hi = hi;
+            this.results = results;
+            this.nanos = nanos;
+        }
+
+        @Override protected void compute() {
+            if (hi - lo > GRAIN && getPool() != null) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Solve(app, queries, algo, reuse, order, base, lo, mid, results, nanos),
+                          new Solve(app, queries, algo, reuse, order, base, mid, hi, results, nanos));
+                return;
+            }
+            FindRoute.Workspace w = app.borrowWorkspace();
+            try {
+                for (int i = lo; i < hi; i++) {
+                    int k = order[i - base];
+                    Query q = queries.get(k);
+                    long t0 = System.nanoTime();
+                    results[k - base] = reuse
+                            ? app.searchFromSourceTree(w, q.start, q.goal)
+                            : app.search(w, q.start, q.goal, algo);
+                    nanos[k - base] = System.nanoTime() - t0;
+                }
+            } finally {
+                app.releaseWorkspace(w);
+            }
+        }
+    }
+
+    static void printSummary(PrintStream out, int count, int threads, long wallNanos, long busyNanos) {
+        out.printf("%nQueries: %d%n", count);
+        out.printf("Threads: %d%n", threads);
+        out.printf("Total time: %.3f ms%n", wallNanos / 1e6);
+        out.printf("Average: %.3f ms/query%n", count == 0 ? 0.0 : busyNanos / 1e6 / count);
+        out.printf("Throughput: %.1f queries/s%n", wallNanos == 0 ? 0.0 : count * 1e9 / wallNanos);
+    }
+}
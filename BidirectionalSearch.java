@@ -0,0 +1,107 @@
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * BidirectionalSearch.java
+ * Bidirectional Dijkstra (--algo bidijkstra) and bidirectional A* (--algo biastar):
+ * one search grows from the start and one from the goal, always advancing the side
+ * with the smaller fringe.
+ * The graph is undirected as loadEdges builds it, so the backward search walks the
+ * same CSR arcs. Whenever a city is labelled by both sides, gF + gB is a candidate
+ * route length mu; the search stops as soon as topF + topB >= mu (the standard
+ * meeting-point rule), which guarantees mu is the shortest distance.
+ *
+ * For A* both sides use the symmetric averaged potentials
+ *   pF(v) = (hGoal(v) - hStart(v)) / 2,   pB(v) = -pF(v)
+ * which stay consistent in both directions whenever hGoal and hStart are, so the
+ * forward key is gF + pF, the backward key gB + pB, and the same stopping rule holds
+ * on the keys. With only a per-goal heuristic file hStart is 0, which is still valid.
+ * One instance per thread: it owns both label sets and both heaps.
+ */
+final class BidirectionalSearch {
+
+    private final Graph graph;
+    private final SearchContext forward;
+    private final SearchContext backward;
+    private final IndexedHeap heapF;
+    private final IndexedHeap heapB;
+
+    BidirectionalSearch(Graph graph) {
+        this.graph = graph;
+        int n = graph.nodeCount();
+        heapF = new IndexedHeap(n, 4, graph.nameRank);
+        heapB = new IndexedHeap(n, 4, graph.nameRank);
+        forward = new SearchContext(n, heapF);
+        backward = new SearchContext(n, heapB);
+    }
+
+    FindRoute.Result search(int start, int goal) {
+        return search(start, goal, null, null);
+    }
+
+    /** Bidirectional A*; a null estimate counts as 0 (both null is plain bidirectional Dijkstra). */
+    FindRoute.Result search(int start, int goal, IntToDoubleFunction toGoal, IntToDoubleFunction toStart) {
+        if (goal < 0) return FindRoute.Result.noRoute(0, 0, 1); // a goal without edges is unreachable
+
+        forward.reset();
+        backward.reset();
+        heapF.clear();
+        heapB.clear();
+        forward.label(start, 0.0, -1, 0);
+        backward.label(goal, 0.0, -1, 0);
+        heapF.push(start, 0.0, potential(start, toGoal, toStart));
+        heapB.push(goal, 0.0, -potential(goal, toGoal, toStart));
+
+        int popped = 0, expanded = 0, generated = 2; // both roots hit a fringe
+        double mu = start == goal ? 0.0 : Double.POSITIVE_INFINITY;
+        int meet = start == goal ? start : -1;
+
+        while (!heapF.isEmpty() && !heapB.isEmpty()) {
+            if (heapF.peekKey() + heapB.peekKey() >= mu) break; // no unexplored route can beat mu (pB = -pF cancels)
+
+            boolean fwd = heapF.size() <= heapB.size();
+            SearchContext self = fwd ? forward : backward;
+            SearchContext other = fwd ? backward : forward;
+            IndexedHeap heap = fwd ? heapF : heapB;
+            double sign = fwd ? 1.0 : -1.0;
+
+            int v = heap.pop();
+            double gv = self.g(v);
+            popped++;
+            expanded++;
+
+            int childDepth = self.depth(v) + 1;
+            for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                int to = graph.targets[e];
+                double newG = gv + graph.weights[e];
+                if (newG < self.g(to)) {
+                    self.label(to, newG, v, childDepth);
+                    heap.push(to, newG, newG + sign * potential(to, toGoal, toStart));
+                    generated++;
+                    if (other.reached(to) && newG + other.g(to) < mu) {
+                        mu = newG + other.g(to);
+                        meet = to;
+                    }
+                }
+            }
+        }
+
+        if (meet < 0) return FindRoute.Result.noRoute(popped, expanded, generated);
+        return FindRoute.Result.route(graph, joinAt(meet), popped, expanded, generated);
+    }
+
+    private static double potential(int v, IntToDoubleFunction toGoal, IntToDoubleFunction toStart) {
+        double hGoal = toGoal == null ? 0.0 : toGoal.applyAsDouble(v);
+        double hStart = toStart == null ? 0.0 : toStart.applyAsDouble(v);
+        return (hGoal - hStart) / 2;
+    }
+
+    /** Start-to-meet path from the forward tree followed by meet-to-goal from the backward tree. */
+    private int[] joinAt(int meet) {
+        int[] head = forward.pathTo(meet);
+        int[] tail = backward.pathTo(meet); // goal ... meet
+        int[] path = new int[head.length + tail.length - 1];
+        System.arraycopy(head, 0, path, 0, head.length);
+        for (int i = 1; i < tail.length; i++) path[head.length - 1 + i] = tail[tail.length - 1 - i];
+        return path;
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BoundedPool.java
+ * At most `capacity` reusable objects (per-query search state sized to the graph),
+ * created on demand and handed out to whichever thread asks, so reuse does not depend
+ * on threads living long: on the server every request may run on a fresh virtual
+ * thread, where a ThreadLocal would allocate new arrays per request. When all of them
+ * are in use, borrow() waits for one to come back, which also bounds the memory many
+ * concurrent requests can take. The most recently released object is handed out first,
+ * while its arrays are still in cache.
+ */
+final class BoundedPool<T> {
+
+    private final int capacity;
+    private final Supplier<T> factory;
+    private final LinkedBlockingDeque<T> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger created = new AtomicInteger();
+
+    BoundedPool(int capacity, Supplier<T> factory) {
+        this.capacity = Math.max(1, capacity);
+        this.factory = factory;
+    }
+
+    T borrow() {
+        T item = idle.pollFirst();
+        if (item != null) return item;
+        if (created.incrementAndGet() <= capacity) {
+            try {
+                return factory.get();
+            } catch (RuntimeException | Error e) {
+                created.decrementAndGet();
+                throw e;
+            }
+        }
+        created.decrementAndGet();
+        try {
+            return idle.takeFirst();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a search workspace", e);
+        }
+    }
+
+    /** Returns an object obtained from borrow(); it must not be used afterwards. */
+    void release(T item) {
+        idle.offerFirst(item);
+    }
+}
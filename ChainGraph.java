@@ -0,0 +1,249 @@
+import java.util.*;
+
+/**
+ * ChainGraph.java
+ * The loaded graph with every maximal chain of degree-2 cities collapsed into one arc
+ * (--compress-chains). A city is interior if it has exactly two arcs, to two different
+ * neighbours; every other city is a core city. A chain is core, interior..., core (both
+ * ends may be the same city); a component that is one plain cycle gets its smallest id
+ * as a core city. The compressed CSR keeps the original ids: a core city's chain arcs lead
+ * straight to the far end, weighted with the chain's length, and interior cities have no
+ * arcs at all, so A* / uniform-cost search only pops core cities.
+ *
+ * A start or goal inside a chain is joined to the search by shortcuts(): the start reaches
+ * both ends of its chain, and the ends of the goal's chain reach the goal. expand() turns
+ * the resulting path back into original cities, leg by leg, for the route lines.
+ */
+final class ChainGraph {
+
+    // Compressed CSR over the original ids (interior cities have empty ranges)
+    final int[] offsets;
+    final int[] targets;
+    final double[] weights;
+    final double maxWeight;
+
+    // Chains: first -> chainNodes[chainStart[c] .. chainStart[c + 1]) -> last
+    private final int[] first, last;
+    private final double[] length;
+    private final int[] chainStart;
+    private final int[] chainNodes;
+
+    // Interior city -> its chain, 1-based position in it, and distance from the chain's first city
+    private final int[] chainOf;   // -1 for core cities
+    private final int[] position;
+    private final double[] along;
+
+    private ChainGraph(int[] offsets, int[] targets, double[] weights, int[] first, int[] last, double[] length,
+                       int[] chainStart, int[] chainNodes, int[] chainOf, int[] position, double[] along) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        double max = 0.0;
+        for (double w : weights) max = Math.max(max, w);
+        this.maxWeight = max;
+        this.first = first;
+        this.last = last;
+        this.length = length;
+        this.chainStart = chainStart;
+        this.chainNodes = chainNodes;
+        this.chainOf = chainOf;
+        this.position = position;
+        this.along = along;
+    }
+
+    // ===== Preprocessing =====
+    static ChainGraph build(Graph graph) {
+        int n = graph.nodeCount();
+        boolean[] interior = new boolean[n];
+        for (int v = 0; v < n; v++) interior[v] = isInterior(graph, v);
+
+        int[] chainOf = new int[n];
+        Arrays.fill(chainOf, -1);
+        int[] position = new int[n];
+        double[] along = new double[n];
+        IntList first = new IntList(), last = new IntList(), chainStart = new IntList(), nodes = new IntList();
+        DoubleList length = new DoubleList();
+
+        // Walk each chain from a core end; a second pass promotes one city of every plain cycle
+        for (int pass = 0; pass < 2; pass++) {
+            for (int v = 0; v < n; v++) {
+                if (pass == 1 && interior[v] && chainOf[v] < 0) interior[v] = false; // no core city on this cycle
+                if (interior[v]) continue;
+                for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                    int u = graph.targets[e];
+                    if (!interior[u] || chainOf[u] >= 0) continue;
+                    int c = first.size();
+                    first.add(v);
+                    chainStart.add(nodes.size());
+                    int prev = v;
+                    double dist = graph.weights[e];
+                    for (int k = 1; interior[u]; k++) {
+                        chainOf[u] = c;
+                        position[u] = k;
+                        along[u] = dist;
+                        nodes.add(u);
+                        int a = graph.offsets[u];
+                        int next = graph.targets[a] != prev ? a : a + 1;
+                        prev = u;
+                        u = graph.targets[next];
+                        dist += graph.weights[next];
+                    }
+                    last.add(u);
+                    length.add(dist);
+                }
+            }
+        }
+        chainStart.add(nodes.size());
+
+        // Compressed arcs: core-core arcs as they are, chain arcs to the chain's far end
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) offsets[v + 1] = offsets[v] + (interior[v] ? 0 : graph.offsets[v + 1] - graph.offsets[v]);
+        int[] targets = new int[offsets[n]];
+        double[] weights = new double[offsets[n]];
+        for (int v = 0, i = 0; v < n; v++) {
+            if (interior[v]) continue;
+            for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++, i++) {
+                int u = graph.targets[e];
+                int c = chainOf[u];
+                if (c < 0) {
+                    targets[i] = u;
+                    weights[i] = graph.weights[e];
+                } else {
+                    // u is the first interior city of c (walked from v) or its last one (reached from the far end)
+                    boolean forward = first.get(c) == v && position[u] == 1;
+                    targets[i] = forward ? last.get(c) : first.get(c);
+                    weights[i] = length.get(c);
+                }
+            }
+        }
+        return new ChainGraph(offsets, targets, weights, first.toArray(), last.toArray(), length.toArray(),
+                chainStart.toArray(), nodes.toArray(), chainOf, position, along);
+    }
+
+    /** Exactly two arcs, to two different cities other than v. */
+    private static boolean isInterior(Graph graph, int v) {
+        int a = graph.offsets[v];
+        if (graph.offsets[v + 1] - a != 2) return false;
+        int x = graph.targets[a], y = graph.targets[a + 1];
+        return x != y && x != v && y != v;
+    }
+
+    // ===== Queries =====
+    /**
+     * Extra arcs of v for one query, written to to[] / w[] (room for 3): from an interior
+     * start to both ends of its chain (and to the goal if it is on the same chain), and from
+     * an end of the goal's chain to an interior goal. Returns how many there are.
+     */
+    int shortcuts(int v, int start, int goal, int[] to, double[] w) {
+        int count = 0;
+        int gc = chainOf[goal];
+        if (v == start && chainOf[v] >= 0) {
+            int c = chainOf[v];
+            to[count] = first[c];
+            w[count++] = along[v];
+            to[count] = last[c];
+            w[count++] = length[c] - along[v];
+            if (gc == c) {
+                to[count] = goal;
+                w[count++] = Math.abs(along[goal] - along[v]);
+            }
+        } else if (gc >= 0) {
+            if (v == first[gc]) {
+                to[count] = goal;
+                w[count++] = along[goal];
+            }
+            if (v == last[gc]) {
+                to[count] = goal;
+                w[count++] = length[gc] - along[goal];
+            }
+        }
+        return count;
+    }
+
+    /** A path of the compressed search (ids joined by compressed arcs or shortcuts) as original cities. */
+    int[] expand(Graph graph, int[] path) {
+        IntList out = new IntList();
+        if (path.length > 0) out.add(path[0]);
+        for (int i = 0; i + 1 < path.length; i++) appendLeg(graph, path[i], path[i + 1], out);
+        return out.toArray();
+    }
+
+    /** Appends the cities after a up to b along the shortest direct arc or chain stretch joining them. */
+    private void appendLeg(Graph graph, int a, int b, IntList out) {
+        double best = graph.arcWeight(a, b);
+        int bestChain = -1, fromPos = 0, toPos = 0;
+        // Chains through a: its own chain if interior, else the chains its arcs start
+        int own = chainOf[a];
+        int end = own >= 0 ? 1 : graph.offsets[a + 1] - graph.offsets[a];
+        for (int j = 0; j < end; j++) {
+            int c = own >= 0 ? own : chainOf[graph.targets[graph.offsets[a] + j]];
+            if (c < 0) continue;
+            int k = chainStart[c + 1] - chainStart[c] + 1; // position of the last city
+            for (int pa : positionsOf(a, c, k)) {
+                for (int pb : positionsOf(b, c, k)) {
+                    if (pa < 0 || pb < 0 || pa == pb) continue;
+                    double d = Math.abs(distanceAt(c, pb, k) - distanceAt(c, pa, k));
+                    if (d < best) {
+                        best = d;
+                        bestChain = c;
+                        fromPos = pa;
+                        toPos = pb;
+                    }
+                }
+            }
+        }
+        if (bestChain < 0) {
+            out.add(b);
+            return;
+        }
+        int k = chainStart[bestChain + 1] - chainStart[bestChain] + 1;
+        int step = toPos > fromPos ? 1 : -1;
+        for (int p = fromPos + step; p != toPos + step; p += step) out.add(cityAt(bestChain, p, k));
+    }
+
+    /** Positions of v on chain c (0 = first, k = last, both for a loop), -1 where it is not. */
+    private int[] positionsOf(int v, int c, int k) {
+        if (chainOf[v] >= 0) return new int[] { chainOf[v] == c ? position[v] : -1, -1 };
+        return new int[] { first[c] == v ? 0 : -1, last[c] == v ? k : -1 };
+    }
+
+    private double distanceAt(int c, int p, int k) {
+        return p == 0 ? 0.0 : p == k ? length[c] : along[chainNodes[chainStart[c] + p - 1]];
+    }
+
+    private int cityAt(int c, int p, int k) {
+        return p == 0 ? first[c] : p == k ? last[c] : chainNodes[chainStart[c] + p - 1];
+    }
+
+    /** Growable int array for the build. */
+    private static final class IntList {
+        private int[] data = new int[16];
+        private int size = 0;
+
+        void add(int x) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = x;
+        }
+
+        int get(int i) { return data[i]; }
+
+        int size() { return size; }
+
+        int[] toArray() { return Arrays.copyOf(data, size); }
+    }
+
+    /** Growable double array for the build. */
+    private static final class DoubleList {
+        private double[] data = new double[16];
+        private int size = 0;
+
+        void add(double x) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = x;
+        }
+
+        double get(int i) { return data[i]; }
+
+        double[] toArray() { return Arrays.copyOf(data, size); }
+    }
+}
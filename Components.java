@@ -0,0 +1,76 @@
+import java.util.*;
+
+/**
+ * Components.java
+ * Union-find over city ids (union by size, path halving), kept by Graph.Builder as
+ * edges arrive so the connected components are known as soon as loading ends.
+ * Graph stores the result as one dense component number per city, which answers
+ * "is there any route from a to b" in O(1) before a search is started.
+ */
+final class Components {
+
+    private int[] parent = new int[16];
+    private int[] size = new int[16];
+    private int count = 0; // ids 0 .. count-1 are known
+
+    /** Makes ids below n known, each new one a singleton. */
+    void ensure(int n) {
+        if (n <= count) return;
+        if (n > parent.length) {
+            int cap = Math.max(parent.length * 2, n);
+            parent = Arrays.copyOf(parent, cap);
+            size = Arrays.copyOf(size, cap);
+        }
+        for (int v = count; v < n; v++) {
+            parent[v] = v;
+            size[v] = 1;
+        }
+        count = n;
+    }
+
+    int find(int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    void union(int a, int b) {
+        ensure(Math.max(a, b) + 1);
+        int ra = find(a), rb = find(b);
+        if (ra == rb) return;
+        if (size[ra] < size[rb]) {
+            int t = ra;
+            ra = rb;
+            rb = t;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+    }
+
+    /** Component number of every id below n, numbered 0, 1, ... in order of each component's smallest id. */
+    int[] labels(int n) {
+        ensure(n);
+        int[] label = new int[n];
+        int[] numberOfRoot = new int[n];
+        Arrays.fill(numberOfRoot, -1);
+        int next = 0;
+        for (int v = 0; v < n; v++) {
+            int r = find(v);
+            if (numberOfRoot[r] < 0) numberOfRoot[r] = next++;
+            label[v] = numberOfRoot[r];
+        }
+        return label;
+    }
+
+    /** Components of a graph that was built without a builder (e.g. an older snapshot). */
+    static int[] of(int n, int[] offsets, int[] targets) {
+        Components uf = new Components();
+        uf.ensure(n);
+        for (int v = 0; v < n; v++) {
+            for (int e = offsets[v], end = offsets[v + 1]; e < end; e++) uf.union(v, targets[e]);
+        }
+        return uf.labels(n);
+    }
+}
@@ -0,0 +1,391 @@
+import java.util.*;
+
+/**
+ * ContractionHierarchy.java
+ * Contraction hierarchies (--algo ch) over the loaded graph.
+ *
+ * Preprocessing contracts cities one at a time in order of priority
+ *   edge difference (shortcuts added - edges removed) + contracted neighbours,
+ * kept in an indexed heap with lazy updates: contracting a city only bumps its
+ * neighbours' keys, and a popped city is re-evaluated and pushed back if it is no
+ * longer the minimum. Contracting v runs a bounded witness search from each remaining
+ * neighbour u (skipping v); if no path u..w at most as long as u-v-w is found, a
+ * shortcut u-w remembering its middle city v is added.
+ * Once the remaining graph gets too dense (hubs of scale-free graphs, the top
+ * separators of grids) contraction stops and the rest is ranked on top as a core.
+ * The result is the upward graph: for each city the edges to higher-ranked cities
+ * (original or shortcut, plus every core-to-core edge), stored as CSR. The graph is
+ * undirected, so one upward graph serves both query directions.
+ *
+ * Queries run Dijkstra upward from start and goal (plain Dijkstra inside the core)
+ * and stop once both fringes are at least the best meeting distance; shortcuts are then unpacked recursively so
+ * the route still lists real city-to-city legs.
+ */
+final class ContractionHierarchy {
+
+    // Witness searches give up after relaxing this many edges (a missed witness only costs a spare shortcut)
+    private static final int SIMULATE_LIMIT = 100;
+    private static final int CONTRACT_LIMIT = 1000;
+    private static final int DENSE_DEGREE = 32;        // above this, priorities are estimated without witness searches
+    private static final int CORE_AVERAGE_DEGREE = 32; // contraction stops once the remaining graph is this dense
+
+    final Graph graph;
+    final int[] rank;       // contraction order; higher = more important
+    final int[] upOffsets;  // CSR of edges to higher-ranked cities
+    final int[] upTargets;
+    final double[] upWeights;
+    final int[] upMid;      // middle city of a shortcut, -1 for an original edge
+    final int shortcuts;
+    final int coreStart;    // lowest rank of the uncontracted core (nodeCount if everything was contracted)
+
+    private ContractionHierarchy(Graph graph, int[] rank, int[] upOffsets, int[] upTargets, double[] upWeights, int[] upMid, int shortcuts, int coreStart) {
+        this.graph = graph;
+        this.rank = rank;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMid = upMid;
+        this.shortcuts = shortcuts;
+        this.coreStart = coreStart;
+    }
+
+    static ContractionHierarchy build(Graph graph) {
+        return new Contractor(graph).run();
+    }
+
+    /** Up-arc between two adjacent cities of the hierarchy (stored at the lower-ranked one), or -1. */
+    int upArc(int a, int b) {
+        int lo = rank[a] < rank[b] ? a : b, hi = lo == a ? b : a;
+        for (int e = upOffsets[lo], end = upOffsets[lo + 1]; e < end; e++) {
+            if (upTargets[e] == hi) return e;
+        }
+        return -1;
+    }
+
+    /** Appends the real cities after `from` up to and including `to`, unpacking shortcuts. */
+    void unpack(int from, int to, int[][] out, int[] len) {
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = from;
+        stack[top++] = to;
+        while (top > 0) {
+            int b = stack[--top], a = stack[--top];
+            int mid = upMid[upArc(a, b)];
+            if (mid < 0) {
+                if (len[0] == out[0].length) out[0] = Arrays.copyOf(out[0], len[0] * 2);
+                out[0][len[0]++] = b;
+                continue;
+            }
+            if (top + 4 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[top++] = mid; // second half after the first
+            stack[top++] = b;
+            stack[top++] = a;
+            stack[top++] = mid;
+        }
+    }
+
+    // ===== Preprocessing =====
+    private static final class Contractor {
+        final Graph graph;
+        final int n;
+
+        // Remaining graph: per city a growable list of (neighbour, weight, middle)
+        final int[][] nbr;
+        final double[][] wt;
+        final int[][] mid;
+        final int[] deg;
+        final int[] deletedNeighbours;
+
+        // Witness search state
+        final IndexedHeap witnessHeap;
+        final SearchContext witness;
+        final int[] targetStamp; // marks the neighbours a witness search still has to settle
+        int targetGeneration = 0;
+
+        // Upward edges, recorded as each city is contracted
+        final int[][] upNbr;
+        final double[][] upWt;
+        final int[][] upMidOf;
+        int shortcuts = 0;
+        long arcs = 0; // sum of remaining degrees
+
+        Contractor(Graph graph) {
+            this.graph = graph;
+            this.n = graph.nodeCount();
+            nbr = new int[n][];
+            wt = new double[n][];
+            mid = new int[n][];
+            deg = new int[n];
+            targetStamp = new int[n];
+            deletedNeighbours = new int[n];
+            upNbr = new int[n][];
+            upWt = new double[n][];
+            upMidOf = new int[n][];
+            witnessHeap = new IndexedHeap(n, 4, graph.nameRank);
+            witness = new SearchContext(n, witnessHeap);
+
+            for (int v = 0; v < n; v++) {
+                int d = graph.offsets[v + 1] - graph.offsets[v];
+                nbr[v] = new int[Math.max(d, 2)];
+                wt[v] = new double[Math.max(d, 2)];
+                mid[v] = new int[Math.max(d, 2)];
+            }
+            for (int v = 0; v < n; v++) {
+                for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                    int w = graph.targets[e];
+                    if (w != v) addOrImprove(v, w, graph.weights[e], -1); // parallel edges keep the cheapest
+                }
+            }
+        }
+
+        ContractionHierarchy run() {
+            int[] rank = new int[n];
+            int[] ids = new int[n];
+            for (int v = 0; v < n; v++) ids[v] = v;
+            IndexedHeap queue = new IndexedHeap(n, 4, ids); // ties by id
+            double[] key = new double[n];
+            for (int v = 0; v < n; v++) queue.push(v, 0.0, key[v] = priority(v));
+
+            int order = 0;
+            boolean[] core = new boolean[n];
+            long remaining = n;
+            while (!queue.isEmpty()) {
+                int v = queue.pop();
+                if (arcs > (long) CORE_AVERAGE_DEGREE * remaining) {
+                    core[v] = true; // too dense to contract: left in the core
+                    while (!queue.isEmpty()) core[queue.pop()] = true;
+                    break;
+                }
+                double p = priority(v); // lazy update: contract only if still the minimum
+                if (!queue.isEmpty() && p > queue.peekKey()) {
+                    queue.push(v, 0.0, key[v] = p);
+                    continue;
+                }
+                arcs -= 2L * deg[v];
+                remaining--;
+                contract(v);
+                rank[v] = order++;
+                for (int i = 0; i < deg[v]; i++) {
+                    int u = nbr[v][i];
+                    deletedNeighbours[u]++;
+                    if (!core[u]) queue.push(u, 0.0, ++key[u]); // exact value is recomputed when u surfaces
+                }
+            }
+
+            int coreStart = order;
+            // The core sits on top; each core city keeps all its remaining (core) edges as "upward"
+            // edges, so queries run plain Dijkstra once they reach it.
+            for (int v = 0; v < n; v++) {
+                if (!core[v]) continue;
+                rank[v] = order++;
+                upNbr[v] = Arrays.copyOf(nbr[v], deg[v]);
+                upWt[v] = Arrays.copyOf(wt[v], deg[v]);
+                upMidOf[v] = Arrays.copyOf(mid[v], deg[v]);
+            }
+            return buildUpward(rank, coreStart);
+        }
+
+        private double priority(int v) {
+            int k = deg[v];
+            // Hubs go last anyway; assume the worst instead of running k witness searches per update
+            // (k choose 2 in long: it overflows int past degree 46341, which would rank the hub first)
+            long added = k > DENSE_DEGREE ? Math.min((long) k * (k - 1) / 2, Integer.MAX_VALUE) : shortcutsFor(v, false);
+            return added - k + deletedNeighbours[v];
+        }
+
+        private void contract(int v) {
+            shortcutsFor(v, true);
+
+            // Remaining neighbours all end up ranked above v: these are v's upward edges
+            upNbr[v] = Arrays.copyOf(nbr[v], deg[v]);
+            upWt[v] = Arrays.copyOf(wt[v], deg[v]);
+            upMidOf[v] = Arrays.copyOf(mid[v], deg[v]);
+            for (int i = 0; i < deg[v]; i++) remove(nbr[v][i], v);
+        }
+
+        /** Counts (and if apply, adds) the shortcuts that contracting v needs. */
+        private int shortcutsFor(int v, boolean apply) {
+            int count = 0;
+            int k = deg[v];
+            int[] around = nbr[v]; // shortcuts join v's neighbours, so v's own list stays put
+            double[] cost = wt[v];
+            for (int i = 0; i + 1 < k; i++) {
+                int u = around[i];
+                double limit = 0;
+                targetGeneration++;
+                for (int j = i + 1; j < k; j++) {
+                    limit = Math.max(limit, cost[i] + cost[j]);
+                    targetStamp[around[j]] = targetGeneration;
+                }
+                witnessSearch(u, v, limit, k - 1 - i, apply ? CONTRACT_LIMIT : SIMULATE_LIMIT);
+                for (int j = i + 1; j < k; j++) {
+                    int w = around[j];
+                    double via = cost[i] + cost[j];
+                    if (witness.g(w) <= via) continue; // a witness path makes u-v-w redundant
+                    count++;
+                    if (apply) {
+                        addOrImprove(u, w, via, v);
+                        addOrImprove(w, u, via, v);
+                    }
+                }
+            }
+            if (apply) shortcuts += count;
+            return count;
+        }
+
+        /** Bounded Dijkstra from source in the remaining graph without `skip`; stops once every target is settled. */
+        private void witnessSearch(int source, int skip, double limit, int targets, int workLimit) {
+            witness.reset();
+            witnessHeap.clear();
+            witness.label(source, 0.0, -1, 0);
+            witnessHeap.push(source, 0.0, 0.0);
+            int work = 0;
+            while (!witnessHeap.isEmpty()) {
+                if (witnessHeap.peekKey() > limit) break;
+                int x = witnessHeap.pop();
+                if (targetStamp[x] == targetGeneration && --targets == 0) break;
+                double gx = witness.g(x);
+                for (int i = 0; i < deg[x]; i++) {
+                    int y = nbr[x][i];
+                    if (y == skip) continue;
+                    if (++work > workLimit) return;
+                    double ng = gx + wt[x][i];
+                    if (ng < witness.g(y)) {
+                        witness.label(y, ng, x, 0);
+                        witnessHeap.push(y, ng, ng);
+                    }
+                }
+            }
+        }
+
+        /** Drops w from u's remaining neighbours (order is not significant). */
+        private void remove(int u, int w) {
+            for (int i = 0; i < deg[u]; i++) {
+                if (nbr[u][i] == w) {
+                    int last = --deg[u];
+                    nbr[u][i] = nbr[u][last];
+                    wt[u][i] = wt[u][last];
+                    mid[u][i] = mid[u][last];
+                    return;
+                }
+            }
+        }
+
+        private void addOrImprove(int u, int w, double weight, int middle) {
+            for (int i = 0; i < deg[u]; i++) {
+                if (nbr[u][i] == w) {
+                    if (weight < wt[u][i]) {
+                        wt[u][i] = weight;
+                        mid[u][i] = middle;
+                    }
+                    return;
+                }
+            }
+            if (deg[u] == nbr[u].length) {
+                int cap = nbr[u].length * 2;
+                nbr[u] = Arrays.copyOf(nbr[u], cap);
+                wt[u] = Arrays.copyOf(wt[u], cap);
+                mid[u] = Arrays.copyOf(mid[u], cap);
+            }
+            arcs++;
+            nbr[u][deg[u]] = w;
+            wt[u][deg[u]] = weight;
+            mid[u][deg[u]++] = middle;
+        }
+
+        private ContractionHierarchy buildUpward(int[] rank, int coreStart) {
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v++) offsets[v + 1] = offsets[v] + upNbr[v].length;
+            int m = offsets[n];
+            int[] targets = new int[m];
+            double[] weights = new double[m];
+            int[] middles = new int[m];
+            for (int v = 0; v < n; v++) {
+                System.arraycopy(upNbr[v], 0, targets, offsets[v], upNbr[v].length);
+                System.arraycopy(upWt[v], 0, weights, offsets[v], upWt[v].length);
+                System.arraycopy(upMidOf[v], 0, middles, offsets[v], upMidOf[v].length);
+            }
+            return new ContractionHierarchy(graph, rank, offsets, targets, weights, middles, shortcuts, coreStart);
+        }
+    }
+
+    // ===== Query =====
+    /** Per-thread query state: upward Dijkstra from both ends. */
+    static final class Query {
+        private final ContractionHierarchy ch;
+        private final IndexedHeap heapF, heapB;
+        private final SearchContext forward, backward;
+
+        Query(ContractionHierarchy ch) {
+            this.ch = ch;
+            int n = ch.graph.nodeCount();
+            heapF = new IndexedHeap(n, 4, ch.graph.nameRank);
+            heapB = new IndexedHeap(n, 4, ch.graph.nameRank);
+            forward = new SearchContext(n, heapF);
+            backward = new SearchContext(n, heapB);
+        }
+
+        FindRoute.Result search(int start, int goal) {
+            if (goal < 0) return FindRoute.Result.noRoute(0, 0, 1); // a goal without edges is unreachable
+
+            forward.reset();
+            backward.reset();
+            heapF.clear();
+            heapB.clear();
+            forward.label(start, 0.0, -1, 0);
+            backward.label(goal, 0.0, -1, 0);
+            heapF.push(start, 0.0, 0.0);
+            heapB.push(goal, 0.0, 0.0);
+
+            int popped = 0, expanded = 0, generated = 2;
+            double mu = start == goal ? 0.0 : Double.POSITIVE_INFINITY;
+            int meet = start == goal ? start : -1;
+
+            while (true) {
+                // An upward search can only stop on its own: each side runs until its minimum reaches mu
+                boolean fOpen = !heapF.isEmpty() && heapF.peekKey() < mu;
+                boolean bOpen = !heapB.isEmpty() && heapB.peekKey() < mu;
+                if (!fOpen && !bOpen) break;
+                boolean fwd = fOpen && (!bOpen || heapF.peekKey() <= heapB.peekKey());
+                SearchContext self = fwd ? forward : backward;
+                SearchContext other = fwd ? backward : forward;
+                IndexedHeap heap = fwd ? heapF : heapB;
+
+                int v = heap.pop();
+                double gv = self.g(v);
+                popped++;
+                expanded++;
+
+                int childDepth = self.depth(v) + 1;
+                for (int e = ch.upOffsets[v], end = ch.upOffsets[v + 1]; e < end; e++) {
+                    int to = ch.upTargets[e];
+                    double newG = gv + ch.upWeights[e];
+                    if (newG < self.g(to)) {
+                        self.label(to, newG, v, childDepth);
+                        heap.push(to, newG, newG);
+                        generated++;
+                        if (other.reached(to) && newG + other.g(to) < mu) {
+                            mu = newG + other.g(to);
+                            meet = to;
+                        }
+                    }
+                }
+            }
+
+            if (meet < 0) return FindRoute.Result.noRoute(popped, expanded, generated);
+            return FindRoute.Result.route(ch.graph, unpackPath(meet), popped, expanded, generated);
+        }
+
+        /** start .. meet .. goal in hierarchy edges, unpacked to real city-to-city legs. */
+        private int[] unpackPath(int meet) {
+            int[] up = forward.pathTo(meet);
+            int[] down = backward.pathTo(meet); // goal ... meet
+            int[][] out = { new int[up.length + down.length + 16] };
+            int[] len = { 0 };
+            out[0][len[0]++] = up[0];
+            for (int i = 0; i + 1 < up.length; i++) ch.unpack(up[i], up[i + 1], out, len);
+            for (int i = down.length - 1; i > 0; i--) ch.unpack(down[i], down[i - 1], out, len);
+            return Arrays.copyOf(out[0], len[0]);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.IntConsumer;
+
+/**
+ * DeltaStepping.java
+ * Parallel single-source shortest paths (--algo delta, --distances-from) by
+ * Meyer and Sanders' delta-stepping.
+ * Tentative distances are kept in buckets of width delta. The lowest non-empty bucket
+ * is emptied in rounds: all of its cities relax their light arcs (weight <= delta) in
+ * parallel, which may refill the same bucket; once it stays empty, the cities removed
+ * from it relax their heavy arcs once. Delta is derived from the edge weights seen
+ * while loading (see tuneDelta).
+ *
+ * Every city is owned by one worker (id % workers). A round is two parallel steps with
+ * a join in between: each worker drains its own part of the bucket and writes relax
+ * requests (target, distance, source) into one outbox per owner; then each owner applies
+ * the requests addressed to it. Labels and buckets of a city are only ever written by
+ * its owner, so no locks or atomics are needed.
+ * Rounds with little work run both steps on the calling thread.
+ * The buckets are a circular window of at most MAX_BUCKETS indices starting at the
+ * current one. Normally it spans the heaviest edge and nothing falls outside; when one
+ * very heavy edge among light ones would need more, a city whose bucket lies beyond the
+ * window waits in its owner's overflow list until the window slides over it.
+ */
+final class DeltaStepping {
+
+    private static final int PARALLEL_CUTOFF = 1024; // bucket entries below which a round stays sequential
+    private static final int MAX_BUCKETS = 4096;     // circular buckets per owner; farther keys wait in the overflow
+
+    final Graph graph;
+    final double delta;
+    private final ForkJoinPool pool;
+    private final int workers;
+
+    // Arcs regrouped light-first per city: light arcs of v are [offsets[v], lightEnd[v])
+    private final int[] targets;
+    private final double[] weights;
+    private final int[] lightEnd;
+
+    private final BoundedPool<State> states; // one per concurrent query, whatever thread it runs on
+
+    DeltaStepping(Graph graph, double delta, ForkJoinPool pool) {
+        this.graph = graph;
+        this.delta = delta;
+        this.pool = pool;
+        this.workers = pool.getParallelism();
+        this.states = new BoundedPool<>(workers, State::new);
+
+        int n = graph.nodeCount();
+        targets = new int[graph.arcCount()];
+        weights = new double[graph.arcCount()];
+        lightEnd = new int[n];
+        for (int v = 0; v < n; v++) {
+            int light = graph.offsets[v], heavy = graph.offsets[v + 1];
+            for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                int slot = graph.weights[e] <= delta ? light++ : --heavy;
+                targets[slot] = graph.targets[e];
+                weights[slot] = graph.weights[e];
+            }
+            lightEnd[v] = light;
+        }
+    }
+
+    /**
+     * Bucket width from the weight distribution: the mean edge weight, so that a typical
+     * edge is light and a bucket holds about one "hop" of the wavefront, but never below
+     * the lightest edge (empty buckets) nor above the heaviest (one big Bellman-Ford).
+     */
+    static double tuneDelta(Graph graph) {
+        if (graph.maxWeight <= 0) return 1.0; // no edges, or only zero-weight ones
+        return Math.max(graph.minWeight, Math.min(graph.maxWeight, graph.meanWeight));
+    }
+
+    /** One-to-one: stops as soon as the goal's bucket has been settled. */
+    FindRoute.Result search(int start, int goal) {
+        if (goal < 0) return FindRoute.Result.noRoute(0, 0, 1); // a goal without edges is unreachable
+        State s = states.borrow();
+        try {
+            s.run(start, goal);
+            if (!s.labels.reached(goal)) return FindRoute.Result.noRoute(s.popped, s.expanded, s.generated);
+            return FindRoute.Result.route(graph, s.labels.pathTo(goal), s.popped, s.expanded, s.generated);
+        } finally {
+            states.release(s);
+        }
+    }
+
+    /** One-to-all: distance from source to every city (Infinity where unreachable). */
+    double[] distancesFrom(int source) {
+        State s = states.borrow();
+        try {
+            s.run(source, -1);
+            double[] dist = new double[graph.nodeCount()];
+            for (int v = 0; v < dist.length; v++) dist[v] = s.labels.g(v);
+            return dist;
+        } finally {
+            states.release(s);
+        }
+    }
+
+    /** Runs body(0 .. workers-1), in parallel unless the round is too small to be worth it. */
+    private void forEachWorker(boolean parallel, IntConsumer body) {
+        if (!parallel || workers == 1) {
+            for (int p = 0; p < workers; p++) body.accept(p);
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int p = 0; p < workers; p++) {
+            final int worker = p;
+            tasks.add(ForkJoinTask.adapt(() -> body.accept(worker)));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override protected void compute() { invokeAll(tasks); }
+        });
+    }
+
+    // ===== Per-query state =====
+    /** Labels, buckets and outboxes of one query; borrowed from the pool for its duration. */
+    private final class State {
+        final SearchContext labels = new SearchContext(graph.nodeCount(), null);
+        final int bucketCount = (int) Math.min(Math.ceil(graph.maxWeight / delta) + 2, MAX_BUCKETS); // live buckets span one max weight
+        final IntList[][] buckets = new IntList[workers][bucketCount];       // [owner][index % bucketCount], null until used
+        final IntList[] overflow = new IntList[workers];                     // cities beyond the window, per owner
+        final long[] overflowLow = new long[workers];                        // lowest bucket in overflow[p]
+        long current;                                                        // the window is [current, current + bucketCount)
+        final int[] queued = new int[workers];                               // bucket entries per owner
+        final IntList[] frontier = new IntList[workers];                     // drained this round, per owner
+        final IntList[] removed = new IntList[workers];                      // drained from the current bucket
+        final Requests[][] outbox = new Requests[workers][workers];          // [sender][owner]
+        final int[] roundStamp = new int[graph.nodeCount()];
+        final int[] bucketStamp = new int[graph.nodeCount()];
+        final int[] drained = new int[workers], improved = new int[workers];
+        int round = 0, bucketRound = 0;
+        int popped, expanded, generated;
+
+        State() {
+            for (int p = 0; p < workers; p++) {
+                overflow[p] = new IntList();
+                frontier[p] = new IntList();
+                removed[p] = new IntList();
+                for (int q = 0; q < workers; q++) outbox[p][q] = new Requests();
+            }
+        }
+
+        void run(int source, int goal) {
+            labels.reset();
+            for (int p = 0; p < workers; p++) {
+                for (IntList b : buckets[p]) if (b != null) b.clear();
+                overflow[p].clear();
+                overflowLow[p] = Long.MAX_VALUE;
+                queued[p] = 0;
+            }
+            current = 0;
+            labels.label(source, 0.0, -1, 0);
+            insert(owner(source), source, 0.0);
+            popped = expanded = 0;
+            generated = 1;
+
+            while (total(queued) > 0) {
+                while (true) { // something is queued, so this ends
+                    if (lowest(overflowLow) < current + bucketCount) refill();
+                    if (bucketSize(current) > 0) break;
+                    current++;
+                }
+                if (goal >= 0 && labels.reached(goal) && labels.g(goal) < current * delta) break; // goal settled
+
+                final long index = current;
+                final boolean parallel = bucketSize(index) >= PARALLEL_CUTOFF;
+                if (++bucketRound == 0) { Arrays.fill(bucketStamp, 0); bucketRound = 1; }
+                for (IntList r : removed) r.clear();
+
+                // Light arcs, until no round puts anything back into this bucket
+                while (bucketSize(index) > 0) {
+                    if (++round == 0) { Arrays.fill(roundStamp, 0); round = 1; }
+                    forEachWorker(parallel, p -> drainAndRelax(p, index, true));
+                    forEachWorker(parallel, this::apply);
+                    tally();
+                }
+                // Heavy arcs, once per city removed from the bucket
+                forEachWorker(parallel, p -> relax(p, removed[p], false));
+                forEachWorker(parallel, this::apply);
+                tally();
+                current++;
+            }
+        }
+
+        /** Worker p takes its cities out of bucket `index` and requests their light relaxations. */
+        private void drainAndRelax(int p, long index, boolean light) {
+            IntList bucket = buckets[p][(int) (index % bucketCount)];
+            IntList front = frontier[p];
+            front.clear();
+            drained[p] = 0;
+            if (bucket == null) return; // p never had a city in this slot
+            for (int i = 0; i < bucket.size; i++) {
+                int v = bucket.items[i];
+                // Skip entries left behind by a later improvement, and duplicates
+                if ((long) (labels.g(v) / delta) != index || roundStamp[v] == round) continue;
+                roundStamp[v] = round;
+                front.add(v);
+                if (bucketStamp[v] != bucketRound) {
+                    bucketStamp[v] = bucketRound;
+                    removed[p].add(v);
+                }
+            }
+            queued[p] -= bucket.size;
+            bucket.clear();
+            drained[p] = front.size;
+            relax(p, front, light);
+        }
+
+        /** Worker p writes a request for every light (or heavy) arc of its cities that improves a label. */
+        private void relax(int p, IntList cities, boolean light) {
+            Requests[] out = outbox[p];
+            for (Requests r : out) r.clear();
+            for (int i = 0; i < cities.size; i++) {
+                int v = cities.items[i];
+                double gv = labels.g(v);
+                int hops = labels.depth(v) + 1;
+                int from = light ? graph.offsets[v] : lightEnd[v];
+                int to = light ? lightEnd[v] : graph.offsets[v + 1];
+                for (int e = from; e < to; e++) {
+                    int t = targets[e];
+                    double nd = gv + weights[e];
+                    if (nd < labels.g(t)) out[owner(t)].add(t, nd, v, hops); // labels are read-only in this step
+                }
+            }
+        }
+
+        /** Owner p applies the requests addressed to it, in sender order. */
+        private void apply(int p) {
+            int count = 0;
+            for (int q = 0; q < workers; q++) {
+                Requests in = outbox[q][p];
+                for (int i = 0; i < in.size; i++) {
+                    int t = in.target[i];
+                    double nd = in.dist[i];
+                    if (nd < labels.g(t)) {
+                        labels.label(t, nd, in.source[i], in.hops[i]);
+                        insert(p, t, nd);
+                        count++;
+                    }
+                }
+            }
+            improved[p] = count;
+        }
+
+        private void insert(int p, int v, double dist) {
+            long index = (long) (dist / delta);
+            if (index >= current + bucketCount) {
+                overflow[p].add(v);
+                overflowLow[p] = Math.min(overflowLow[p], index);
+            } else {
+                bucket(p, index).add(v);
+            }
+            queued[p]++;
+        }
+
+        /**
+         * The window has reached the lowest overflow bucket: moves every overflow city that now
+         * falls inside it. If the window holds nothing at all, it first jumps ahead to that
+         * bucket. Entries left behind by a later improvement are dropped.
+         */
+        private void refill() {
+            int outside = 0;
+            for (IntList o : overflow) outside += o.size;
+            if (total(queued) == outside) current = Math.max(current, lowest(overflowLow));
+            long end = current + bucketCount;
+            for (int p = 0; p < workers; p++) {
+                IntList o = overflow[p];
+                int kept = 0;
+                long low = Long.MAX_VALUE;
+                for (int i = 0; i < o.size; i++) {
+                    int v = o.items[i];
+                    long index = (long) (labels.g(v) / delta);
+                    if (index < current) {
+                        queued[p]--; // improved since; its newer entry was drained already
+                    } else if (index < end) {
+                        bucket(p, index).add(v);
+                    } else {
+                        o.items[kept++] = v;
+                        low = Math.min(low, index);
+                    }
+                }
+                o.size = kept;
+                overflowLow[p] = low;
+            }
+        }
+
+        /**
+         * Owner p's list for bucket `index`, allocated on first insert: a State would otherwise
+         * hold workers x bucketCount lists up front, and up to workers States are pooled.
+         */
+        private IntList bucket(int p, long index) {
+            int slot = (int) (index % bucketCount);
+            IntList b = buckets[p][slot];
+            if (b == null) buckets[p][slot] = b = new IntList();
+            return b;
+        }
+
+        private long lowest(long[] values) {
+            long min = Long.MAX_VALUE;
+            for (long x : values) min = Math.min(min, x);
+            return min;
+        }
+
+        private int owner(int v) { return v % workers; }
+
+        private int bucketSize(long index) {
+            int size = 0;
+            for (int p = 0; p < workers; p++) {
+                IntList b = buckets[p][(int) (index % bucketCount)];
+                if (b != null) size += b.size;
+            }
+            return size;
+        }
+
+        private void tally() {
+            for (int p = 0; p < workers; p++) {
+                popped += drained[p];
+                expanded += drained[p];
+                generated += improved[p];
+                drained[p] = improved[p] = 0;
+            }
+        }
+
+        private int total(int[] counts) {
+            int sum = 0;
+            for (int c : counts) sum += c;
+            return sum;
+        }
+    }
+
+    // ===== Growable primitive buffers =====
+    private static final class IntList {
+        int[] items = new int[16];
+        int size = 0;
+
+        void add(int v) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = v;
+        }
+
+        void clear() { size = 0; }
+    }
+
+    private static final class Requests {
+        int[] target = new int[16], source = new int[16], hops = new int[16];
+        double[] dist = new double[16];
+        int size = 0;
+
+        void add(int t, double d, int s, int h) {
+            if (size == target.length) {
+                int cap = size * 2;
+                target = Arrays.copyOf(target, cap);
+                source = Arrays.copyOf(source, cap);
+                hops = Arrays.copyOf(hops, cap);
+                dist = Arrays.copyOf(dist, cap);
+            }
+            target[size] = t;
+            dist[size] = d;
+            source[size] = s;
+            hops[size++] = h;
+        }
+
+        void clear() { size = 0; }
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * DialQueue.java
+ * Dial's bucket queue: one bucket per integer key, used circularly. Queued keys of
+ * uniform-cost search lie in [last, last + maxWeight], so maxWeight + 1 buckets are
+ * enough and push and pop are O(1) plus a walk over empty buckets.
+ * Only valid for that key range; FindRoute picks it for uniform-cost search on graphs
+ * with small integral weights.
+ */
+final class DialQueue extends MonotoneFringe {
+
+    DialQueue(int nodeCount, long maxWeight, int[] nameRank) {
+        super(nodeCount, (int) maxWeight + 1, nameRank);
+    }
+
+    @Override protected int bucketFor(long key) {
+        if (key - last >= head.length) {
+            throw new IllegalStateException("Key " + key + " is beyond the Dial range of " + last + " + " + (head.length - 1));
+        }
+        return (int) (key % head.length);
+    }
+
+    @Override protected int settleMinimum() {
+        while (head[(int) (last % head.length)] < 0) last++; // something is queued, so this ends
+        return (int) (last % head.length);
+    }
+}
@@ -0,0 +1,192 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * DistanceMatrix.java
+ * --matrix mode: shortest distances from every city of a sources file to every city of
+ * a targets file (one name per line), in one run instead of one query per pair.
+ * Each row is a uniform-cost search from its source that stops as soon as every
+ * distinct target in the source's connected component is settled; rows are spread over --threads workers, each with its
+ * own labels and fringe, and written in file order one block at a time.
+ *
+ * Output (--matrix-format):
+ *   csv:    a header line ",Target1,Target2,..." then "Source,d,d,..." per source,
+ *           distances as %.1f and Infinity where there is no route
+ *   binary: big-endian int magic 'FRDM', int version, int rows, int cols,
+ *           then double[rows * cols] row-major (Infinity where there is no route)
+ * A city missing from the graph is only at distance 0 from itself.
+ */
+final class DistanceMatrix {
+
+    static final int MAGIC = 0x4652444D; // "FRDM"
+    static final int VERSION = 1;
+    private static final int BLOCK = 256; // rows computed before they are written
+
+    private DistanceMatrix() { }
+
+    static boolean isFormat(String format) {
+        return "csv".equalsIgnoreCase(format) || "binary".equalsIgnoreCase(format);
+    }
+
+    /** City names, one per line; blank lines are skipped, END / END OF INPUT stops. */
+    static List<String> readCities(String file) throws IOException {
+        List<String> cities = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.equalsIgnoreCase("END") || line.equalsIgnoreCase("END OF INPUT")) break;
+                cities.add(line.split("\\s+")[0]);
+            }
+        }
+        return cities;
+    }
+
+    static void write(Graph graph, List<String> sources, List<String> targets, Supplier<Fringe> fringes,
+                      int threads, String format, OutputStream os) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        int rows = sources.size(), cols = targets.size();
+        int[] targetIds = new int[cols];
+        for (int c = 0; c < cols; c++) targetIds[c] = graph.id(targets.get(c));
+
+        DataOutputStream bin = csv ? null : new DataOutputStream(os);
+        PrintStream text = csv ? new PrintStream(os, false) : null;
+        if (csv) {
+            StringBuilder header = new StringBuilder();
+            for (String t : targets) header.append(',').append(t);
+            text.println(header);
+        } else {
+            bin.writeInt(MAGIC);
+            bin.writeInt(VERSION);
+            bin.writeInt(rows);
+            bin.writeInt(cols);
+        }
+
+        int workers = Math.max(1, threads);
+        Row[] solvers = new Row[workers];
+        for (int w = 0; w < workers; w++) solvers[w] = new Row(graph, fringes.get());
+        ExecutorService pool = workers > 1 ? new ForkJoinPool(workers) : null;
+        try {
+            for (int from = 0; from < rows; from += BLOCK) {
+                int to = Math.min(rows, from + BLOCK);
+                double[][] block = new double[to - from][];
+                solveBlock(graph, sources, targets, targetIds, solvers, pool, from, to, block);
+                for (int r = from; r < to; r++) {
+                    double[] row = block[r - from];
+                    if (csv) {
+                        StringBuilder line = new StringBuilder(sources.get(r));
+                        for (double d : row) {
+                            line.append(',');
+                            if (Double.isFinite(d)) line.append(String.format("%.1f", d));
+                            else line.append("Infinity");
+                        }
+                        text.println(line);
+                    } else {
+                        for (double d : row) bin.writeDouble(d);
+                    }
+                }
+            }
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+        if (csv) text.flush();
+        else bin.flush();
+    }
+
+    private static void solveBlock(Graph graph, List<String> sources, List<String> targets, int[] targetIds, Row[] solvers,
+                                   ExecutorService pool, int from, int to, double[][] block) throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<>(solvers.length);
+        for (int w = 0; w < solvers.length; w++) {
+            final Row solver = solvers[w];
+            final int first = from + w;
+            tasks.add(() -> {
+                for (int r = first; r < to; r += solvers.length) {
+                    block[r - from] = solver.solve(graph.id(sources.get(r)), sources.get(r), targets, targetIds);
+                }
+                return null;
+            });
+        }
+        if (pool == null) {
+            try {
+                tasks.get(0).call();
+            } catch (Exception e) {
+                throw new IllegalStateException("Matrix row failed", e);
+            }
+            return;
+        }
+        try {
+            for (Future<Void> done : pool.invokeAll(tasks)) done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while computing the matrix");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Matrix row failed", e.getCause());
+        }
+    }
+
+    /** One worker's search state: uniform-cost search with early stop on the last target. */
+    private static final class Row {
+        final Graph graph;
+        final Fringe fringe;
+        final SearchContext ctx;
+        final int[] targetStamp; // generation in which a city was marked as a pending target
+        int generation = 0;
+
+        Row(Graph graph, Fringe fringe) {
+            this.graph = graph;
+            this.fringe = fringe;
+            this.ctx = new SearchContext(graph.nodeCount(), fringe);
+            this.targetStamp = new int[graph.nodeCount()];
+        }
+
+        double[] solve(int source, String sourceName, List<String> targets, int[] targetIds) {
+            double[] row = new double[targetIds.length];
+            if (source < 0) {
+                for (int c = 0; c < row.length; c++) {
+                    row[c] = targets.get(c).equals(sourceName) ? 0.0 : Double.POSITIVE_INFINITY;
+                }
+                return row;
+            }
+            if (++generation == 0) {
+                Arrays.fill(targetStamp, 0);
+                generation = 1;
+            }
+            int pending = 0;
+            for (int id : targetIds) {
+                if (id >= 0 && targetStamp[id] != generation && graph.connected(source, id)) {
+                    targetStamp[id] = generation;
+                    pending++;
+                }
+            }
+
+            ctx.reset();
+            fringe.clear();
+            ctx.label(source, 0.0, -1, 0);
+            fringe.push(source, 0.0, 0.0);
+            while (pending > 0 && !fringe.isEmpty()) {
+                int v = fringe.pop();
+                double gv = fringe.poppedG();
+                if (gv > ctx.g(v) + 1e-9) continue; // stale entry
+                if (targetStamp[v] == generation) {
+                    targetStamp[v] = 0; // settled
+                    if (--pending == 0) break;
+                }
+                for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                    int to = graph.targets[e];
+                    double ng = gv + graph.weights[e];
+                    if (ng + 1e-9 < ctx.g(to)) {
+                        ctx.label(to, ng, v, 0);
+                        fringe.push(to, ng, ng);
+                    }
+                }
+            }
+            for (int c = 0; c < row.length; c++) {
+                row[c] = targetIds[c] < 0 ? Double.POSITIVE_INFINITY : ctx.g(targetIds[c]);
+            }
+            return row;
+        }
+    }
+}
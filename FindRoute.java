@@ -1,5 +1,6 @@
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * FindRoute.java
@@ -7,228 +8,797 @@ import java.util.*;
  * Output format mirrors the original C++: Nodes Popped / Expanded / Generated, Distance, and Route.
  *
  * Usage:
- *   java FindRoute <edgesFile> <startCity> <goalCity> [--heuristic <heurFile>] [--algo astar|greedy]
+ *   java FindRoute <edgesFile> <startCity> <goalCity> [--heuristic <heurFile> | --landmarks <k>] [--algo astar|greedy|bidijkstra|biastar|ch|delta|hl]
+ *                  [--fringe auto|pq|binary|4ary]
+ *   java FindRoute <edgesFile> --queries <queryFile> [--threads <n>] [--heuristic <heurFile> | --landmarks <k>] [--algo astar|greedy|bidijkstra|biastar|ch|delta|hl] [...]
+ *   java FindRoute <edgesFile> --serve <port> [--heuristic <heurFile> | --landmarks <k>] [--algo astar|greedy|bidijkstra|biastar|ch|delta|hl] [...]
+ *   java FindRoute <edgesFile> --compile-graph <snapshotFile> [--heuristic <heurFile>]
+ *   java FindRoute <edgesFile> --distances-from <city> [--threads <n>]
+ *   java FindRoute <edgesFile> --matrix <sourcesFile> [--matrix-targets <targetsFile>] [--matrix-format csv|binary] [--threads <n>]
+ *   (the search modes also take [--landmark-strategy farthest|avoid],
+ *    [--hot-goals <goalsFile> [--heuristic-cache <dir>]], [--hub-labels <file>], [--arc-flags <regions>], [--compress-chains],
+ *    [--cache <size>] and [--distance-only])
  * Defaults:
  *   - If no --heuristic is provided, all h(n)=0  => Uniform-Cost Search.
  *   - If --heuristic is provided but --algo omitted => A*.
+ *   - --landmarks k computes ALT lower bounds (valid for every goal) from k landmark
+ *     cities picked by --landmark-strategy farthest|avoid (default avoid); they take
+ *     the place of a heuristic file for astar, greedy and biastar.
+ *   - A goal in another connected component than the start (known from loading) is
+ *     answered at once with Distance: Infinity and zero counters, for every --algo.
+ *   - --hot-goals lists destination cities that get an exact distance-to-goal table,
+ *     built once and memory-mapped from --heuristic-cache <dir> (default: a folder in
+ *     the temp directory); searches toward them expand little more than the route.
+ *   - --algo bidijkstra searches from both ends at once and ignores heuristics;
+ *     --algo biastar does the same with averaged A* potentials.
+ *   - --algo ch answers from a contraction hierarchy, built on the first ch query
+ *     and then shared by every thread; it ignores heuristics.
+ *   - --algo hl answers from hub labels (a distance query is one merge of two sorted labels);
+ *     they are derived from the hierarchy on first use, or kept in --hub-labels <file>,
+ *     built there once and memory-mapped by later runs.
+ *   - --arc-flags k splits the graph into k <= 64 regions and flags, per arc and region,
+ *     whether it starts a shortest route into the region; astar and greedy (and uniform-cost
+ *     search) skip arcs not flagged for the goal's region and report Relaxations Pruned.
+ *   - --compress-chains collapses every chain of degree-2 cities into one arc, so astar and
+ *     greedy (and uniform-cost search) pop only the junctions; the route is expanded back to
+ *     every city. Counters count the compressed search. Ignored together with --arc-flags.
+ *   - --cache n keeps up to n results keyed by (start, goal, algo), admitting a new pair
+ *     over the least recently used one only if it is asked for more often (TinyLFU);
+ *     --queries reports the hits, misses and evictions, and --serve answers GET /stats.
+ *   - --distance-only prints the Distance line without the route (hl then skips route recovery).
+ *   - --algo delta runs parallel delta-stepping over --threads workers (default: all cores);
+ *     --distances-from prints the distance from one city to every reachable city with it,
+ *     in the heuristics file format.
+ *   - The fringe defaults to auto: when every weight (and heuristic) is a whole number,
+ *     uniform-cost search and A* use a monotone integer queue (Dial's buckets for small
+ *     weights, else a radix heap); otherwise the PriorityQueue with stale entries (pq).
+ *     pq forces that queue, and binary/4ary select an indexed heap with decrease-key.
+ *   - <edgesFile> may also be a binary snapshot written by --compile-graph; it is
+ *     memory-mapped instead of parsed, and any heuristics compiled into it are used.
+ *   - --matrix writes the distance from every city of sourcesFile to every city of targetsFile
+ *     (default: the sources again), one name per line, as a CSV or binary matrix; each row is
+ *     one uniform-cost search that stops once all its targets are settled, rows spread over
+ *     --threads workers.
+ *   - --queries runs every "StartCity GoalCity" line of the query file against one loaded graph,
+ *     spread over --threads workers (default: all cores). Uniform-cost batches are grouped
+ *     by start city and each group resumes one search instead of restarting per goal.
+ *   - --serve keeps the graph resident and answers GET /route?from=&to=&algo= over HTTP.
  */
 public class FindRoute {
 
-    // Graph data
-    private final Map<String, List<Edge>> adj = new HashMap<>();
-    private final Map<String, Double> heuristic = new HashMap<>();
+    // Graph data (CSR adjacency over interned city ids)
+    private Graph graph;
+    private double[] heuristic = new double[0]; // h(n) by city id; all zeros unless a heuristic file is loaded
+    private boolean heuristicLoaded = false;     // from --heuristic or embedded in a graph snapshot
+    private boolean heuristicIntegral = true;    // every h(n) is a whole number, so A* keys stay integral
+    private Landmarks landmarks;                 // --landmarks: goal-independent bounds, used instead of heuristic[]
+    private Map<Integer, GoalTable> goalTables = Collections.emptyMap(); // --hot-goals: exact h for these goals
+    private ArcFlags arcFlags;                   // --arc-flags: prune arcs off every shortest route into the goal's region
+    private ChainGraph chains;                   // --compress-chains: A* searches the graph with degree-2 chains collapsed
+
+    // Reusable search state (labels, fringes, counters) sized to the loaded graph, borrowed per query
+    private static final long DIAL_MAX_WEIGHT = 1 << 16; // Dial keeps maxWeight + 1 buckets; heavier graphs get the radix heap
+    private String fringeKind = "auto";
+    private BoundedPool<Workspace> workspaces;       // at most --threads of them, created once the graph is loaded
+    private volatile ContractionHierarchy hierarchy; // built lazily by the first --algo ch query
+    private volatile DeltaStepping deltaStepping;    // built lazily by the first delta query
+    private volatile HubLabels hubLabels;            // --hub-labels file, or built lazily by the first hl query
+    private boolean distanceOnly = false;            // --distance-only: results carry no route
+    private ResultCache cache;                       // --cache n: repeated (start, goal, algo) skip the search
+    private int threads = Runtime.getRuntime().availableProcessors();
 
-    // Counters (to mirror original output)
-    private int nodesGenerated = 0;
-    private int nodesPopped = 0;
-    private int nodesExpanded = 0;
+    // ===== Loading utilities =====
+    private void loadEdges(String edgesFile) throws IOException {
+        if (GraphSnapshot.isSnapshot(edgesFile)) {
+            GraphSnapshot snapshot = GraphSnapshot.read(edgesFile);
+            graph = snapshot.graph;
+            heuristicLoaded = snapshot.heuristic != null;
+            heuristic = heuristicLoaded ? snapshot.heuristic : new double[graph.nodeCount()];
+            heuristicIntegral = allWhole(heuristic);
+        } else {
+            graph = GraphLoader.loadEdges(edgesFile); // chunks scanned in parallel, merged in file order
+            heuristic = new double[graph.nodeCount()];
+        }
+        workspaces = new BoundedPool<>(threads, Workspace::new);
+    }
+
+    private void loadHeuristics(String heurFile) throws IOException {
+        heuristic = GraphLoader.loadHeuristics(heurFile, graph);
+        heuristicLoaded = true;
+        heuristicIntegral = allWhole(heuristic);
+    }
 
-    // ===== Data types =====
-    private static class Edge {
-        final String to;
-        final double cost;
-        Edge(String to, double cost) { this.to = to; this.cost = cost; }
+    private static boolean allWhole(double[] values) {
+        for (double x : values) if (!Graph.isWholeNumber(x)) return false;
+        return true;
     }
 
-    private static class Node {
-        final String name;
-        final Node parent;
-        final double g;  // cumulative cost
-        final double h;  // heuristic
-        final int depth;
+    /** Selects and measures `count` ALT landmarks; from then on every search uses their bounds. */
+    void buildLandmarks(int count, String strategy) {
+        landmarks = Landmarks.build(graph, count, strategy);
+    }
 
-        Node(String name, Node parent, double g, double h, int depth) {
-            this.name = name;
-            this.parent = parent;
-            this.g = g;
-            this.h = h;
-            this.depth = depth;
+    /** Partitions the graph into `regions` regions and flags the arcs each search toward them may use. */
+    void buildArcFlags(int regions) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(threads, 1));
+        try {
+            arcFlags = ArcFlags.build(graph, regions, pool);
+            if (arcFlags.unprunedRegions() > 0) {
+                System.err.printf("Arc flags: %d of %d regions have more than %d boundary cities and are not pruned%n",
+                        arcFlags.unprunedRegions(), Math.min(regions, ArcFlags.MAX_REGIONS), ArcFlags.BOUNDARY_LIMIT);
+            }
+        } finally {
+            pool.shutdown();
         }
+    }
 
-        double fAStar() { return g + h; }
-        double fGreedy() { return h; }
+    /** Collapses every degree-2 chain into one arc for A* / uniform-cost search (not with arc flags, which are per arc). */
+    void compressChains() {
+        chains = ChainGraph.build(graph);
     }
 
-    // ===== Loading utilities =====
-    private void loadEdges(String edgesFile) throws IOException {
-        try (BufferedReader br = new BufferedReader(new FileReader(edgesFile))) {
+    /** Heaviest arc the A* loop relaxes: a whole chain once chains are compressed. */
+    private double searchedMaxWeight() {
+        return chains == null ? graph.maxWeight : chains.maxWeight;
+    }
+
+    /**
+     * Maps (building on first use) an exact distance-to-goal table for every city listed
+     * in goalsFile, one name per line; searches toward those goals use it as their heuristic.
+     */
+    void loadHotGoals(String goalsFile, String cacheDir) throws IOException {
+        long fingerprint = GoalTable.fingerprint(graph);
+        Map<Integer, GoalTable> tables = new HashMap<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(goalsFile))) {
             String line;
             while ((line = br.readLine()) != null) {
                 line = line.trim();
                 if (line.isEmpty()) continue;
                 if (line.equalsIgnoreCase("END") || line.equalsIgnoreCase("END OF INPUT")) break;
-                String[] parts = line.split("\\s+");
-                if (parts.length < 3) continue;
-                String a = parts[0], b = parts[1];
-                double d = Double.parseDouble(parts[2]);
-                adj.computeIfAbsent(a, k -> new ArrayList<>()).add(new Edge(b, d));
-                adj.computeIfAbsent(b, k -> new ArrayList<>()).add(new Edge(a, d)); // undirected
+                String city = line.split("\\s+")[0];
+                int goal = graph.id(city);
+                if (goal < 0) {
+                    System.err.println("Ignoring unknown hot goal: " + city);
+                    continue;
+                }
+                if (!tables.containsKey(goal)) {
+                    tables.put(goal, GoalTable.open(graph, fingerprint, goal, cacheDir, deltaStepping()::distancesFrom));
+                }
             }
         }
+        goalTables = tables;
     }
 
-    private void loadHeuristics(String heurFile) throws IOException {
-        heuristic.clear();
-        try (BufferedReader br = new BufferedReader(new FileReader(heurFile))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                if (line.equalsIgnoreCase("END") || line.equalsIgnoreCase("END OF INPUT")) break;
-                String[] parts = line.split("\\s+");
-                if (parts.length < 2) continue;
-                String city = parts[0];
-                double h = Double.parseDouble(parts[1]);
-                heuristic.put(city, h);
+    /** True if searches have a real estimate (a heuristic file, landmarks or hot goals) rather than h = 0. */
+    boolean hasEstimates() { return heuristicLoaded || landmarks != null || !goalTables.isEmpty(); }
+
+    /** h(v) toward goal: an exact hot-goal table if there is one, else landmarks, else the heuristic file. */
+    private double estimate(GoalTable exact, Landmarks alt, double[] heuristic, int v, int goal) {
+        if (exact != null) return exact.estimate(v);
+        if (alt != null) return alt.lowerBound(v, goal);
+        return heuristic[v];
+    }
+
+    /**
+     * Loads a graph (text or snapshot) and, if heurFile is not null, its heuristics.
+     * Entry point for code that embeds the engine instead of going through main.
+     */
+    public static FindRoute load(String edgesFile, String heurFile, String fringeKind) throws IOException {
+        FindRoute app = new FindRoute();
+        app.fringeKind = fringeKind;
+        app.loadEdges(edgesFile);
+        if (heurFile != null) app.loadHeuristics(heurFile);
+        return app;
+    }
+
+    /** A fresh context for this graph; searches on different threads must not share one. */
+    SearchContext newContext() {
+        return new SearchContext(graph.nodeCount(), newFringe(fringeKind));
+    }
+
+    private Fringe newFringe(String kind) {
+        if ("pq".equalsIgnoreCase(kind) || "auto".equalsIgnoreCase(kind)) return new LazyFringe(graph.nameRank);
+        if ("binary".equalsIgnoreCase(kind)) return new IndexedHeap(graph.nodeCount(), 2, graph.nameRank);
+        if ("4ary".equalsIgnoreCase(kind)) return new IndexedHeap(graph.nodeCount(), 4, graph.nameRank);
+        throw new IllegalArgumentException("Unknown fringe: " + kind + " (expected auto, pq, binary or 4ary)");
+    }
+
+    /** The contraction hierarchy of the loaded graph, preprocessed once on first use. */
+    ContractionHierarchy hierarchy() {
+        ContractionHierarchy ch = hierarchy;
+        if (ch == null) {
+            synchronized (this) {
+                ch = hierarchy;
+                if (ch == null) hierarchy = ch = ContractionHierarchy.build(graph);
+            }
+        }
+        return ch;
+    }
+
+    /** Hub labels mapped by --hub-labels, or built in memory from the hierarchy on first use. */
+    HubLabels hubLabels() {
+        HubLabels hl = hubLabels;
+        if (hl == null) {
+            synchronized (this) {
+                hl = hubLabels;
+                if (hl == null) hubLabels = hl = HubLabels.build(graph, hierarchy());
             }
         }
+        return hl;
     }
 
+    /** Maps the hub labels in file, building and writing them first if it is missing or was built for another graph. */
+    void loadHubLabels(String file) throws IOException {
+        hubLabels = HubLabels.open(graph, GoalTable.fingerprint(graph), file, () -> HubLabels.build(graph, hierarchy()));
+    }
+
+    /** The delta-stepping engine, with its worker pool and light/heavy arc split, created once on first use. */
+    DeltaStepping deltaStepping() {
+        DeltaStepping ds = deltaStepping;
+        if (ds == null) {
+            synchronized (this) {
+                ds = deltaStepping;
+                if (ds == null) {
+                    deltaStepping = ds = new DeltaStepping(graph, DeltaStepping.tuneDelta(graph), new ForkJoinPool(Math.max(threads, 1)));
+                }
+            }
+        }
+        return ds;
+    }
+
+    /** The value of a numeric option if it is a whole number in [1, max]; otherwise reports it and returns -1. */
+    private static int positiveOption(String option, String value, int max) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= 1 && n <= max) return n;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.err.println("Invalid " + option + ": " + value
+                + (max == Integer.MAX_VALUE ? " (expected a positive whole number)" : " (expected a whole number from 1 to " + max + ")"));
+        return -1;
+    }
+
+    static boolean isAlgorithm(String algo) {
+        for (String a : new String[] { "astar", "greedy", "bidijkstra", "biastar", "ch", "delta", "hl" }) {
+            if (a.equalsIgnoreCase(algo)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isFringeKind(String kind) {
+        return "auto".equalsIgnoreCase(kind) || "pq".equalsIgnoreCase(kind) || "binary".equalsIgnoreCase(kind) || "4ary".equalsIgnoreCase(kind);
+    }
+
+    /** One-to-all by delta-stepping, written as "City distance" lines ending with END OF INPUT. */
+    void printDistancesFrom(String city, PrintStream out) {
+        int source = graph.id(city);
+        if (source < 0) {
+            out.printf("%s %.1f%n", city, 0.0); // a city without edges only reaches itself
+        } else {
+            double[] dist = deltaStepping().distancesFrom(source);
+            for (int v = 0; v < dist.length; v++) {
+                if (Double.isFinite(dist[v])) out.printf("%s %.1f%n", graph.name(v), dist[v]);
+            }
+        }
+        out.println("END OF INPUT");
+    }
+
+    /** Many-to-many distances between the cities listed in two files, written by DistanceMatrix. */
+    void printMatrix(String sourcesFile, String targetsFile, String format, OutputStream out) throws IOException {
+        List<String> sources = DistanceMatrix.readCities(sourcesFile);
+        List<String> targets = targetsFile == null ? sources : DistanceMatrix.readCities(targetsFile);
+        DistanceMatrix.write(graph, sources, targets, this::uniformCostFringe, threads, format, out);
+    }
+
+    // ===== Per-query workspaces =====
+    /**
+     * Everything one search writes: labels and the context's fringe, plus the bucket queues
+     * and per-algorithm searchers, each created the first time a query needs it. A workspace
+     * is used by one thread at a time, between borrowWorkspace() and releaseWorkspace().
+     */
+    final class Workspace {
+        final SearchContext ctx = newContext();
+        private DialQueue dial;
+        private RadixHeap radix;
+        private BidirectionalSearch bidirectional;
+        private ContractionHierarchy.Query hierarchyQuery;
+        private SourceTree sourceTree;
+
+        DialQueue dial() {
+            if (dial == null) dial = new DialQueue(graph.nodeCount(), (long) searchedMaxWeight(), graph.nameRank);
+            return dial;
+        }
+
+        RadixHeap radix() {
+            if (radix == null) radix = new RadixHeap(graph.nodeCount(), graph.nameRank);
+            return radix;
+        }
+
+        BidirectionalSearch bidirectional() {
+            if (bidirectional == null) bidirectional = new BidirectionalSearch(graph);
+            return bidirectional;
+        }
+
+        ContractionHierarchy.Query hierarchyQuery() {
+            if (hierarchyQuery == null) hierarchyQuery = new ContractionHierarchy.Query(hierarchy());
+            return hierarchyQuery;
+        }
+
+        SourceTree sourceTree() {
+            if (sourceTree == null) sourceTree = new SourceTree(graph, uniformCostFringe());
+            return sourceTree;
+        }
+    }
+
+    /** A workspace for this thread's next queries; waits while --threads of them are in use. */
+    Workspace borrowWorkspace() { return workspaces.borrow(); }
+
+    void releaseWorkspace(Workspace w) { workspaces.release(w); }
+
     // ===== Search variants =====
+    /** Thread-safe once loading is done: each call borrows a workspace for the search. */
     public Result search(String start, String goal, String algo) {
-        // If no heuristics provided, default to 0
-        double hStart = heuristic.getOrDefault(start, 0.0);
+        Workspace w = borrowWorkspace();
+        try {
+            return search(w, start, goal, algo);
+        } finally {
+            releaseWorkspace(w);
+        }
+    }
 
-        Comparator<Node> cmp;
-        if ("greedy".equalsIgnoreCase(algo)) {
-            cmp = Comparator.comparingDouble(Node::fGreedy).thenComparing(n -> n.name);
-        } else { // astar (default)
-            cmp = Comparator.comparingDouble(Node::fAStar).thenComparing(n -> n.name);
+    /** search(start, goal, algo) in a workspace the caller holds, through the result cache if there is one. */
+    Result search(Workspace w, String start, String goal, String algo) {
+        if (cache == null) return solve(w, start, goal, algo);
+        Result r = cache.get(start, goal, algo);
+        if (r == null) {
+            r = solve(w, start, goal, algo);
+            cache.put(start, goal, algo, r);
         }
+        return r;
+    }
+
+    /**
+     * True if queries of algo are plain uniform-cost searches (no estimates, arc flags,
+     * cache or chain compression), whose settled region does not depend on the goal, so queries sharing a start
+     * can resume one search through searchFromSourceTree.
+     */
+    boolean canReuseTrees(String algo) {
+        return "astar".equalsIgnoreCase(algo) && !hasEstimates() && arcFlags == null && cache == null && chains == null;
+    }
+
+    /**
+     * Same result as search(start, goal, "astar") when canReuseTrees holds, but resumes the
+     * workspace's search from its previous query if that had the same start.
+     */
+    Result searchFromSourceTree(Workspace w, String start, String goal) {
+        int s = graph.id(start);
+        int t = graph.id(goal);
+        if (s < 0 || !connected(s, t)) return solve(w, start, goal, "astar"); // answered without a tree
+        Result r = w.sourceTree().search(s, t);
+        return distanceOnly ? r.withoutRoute() : r;
+    }
 
-        PriorityQueue<Node> fringe = new PriorityQueue<>(cmp);
-        Map<String, Double> bestG = new HashMap<>(); // best known cost for a city
+    /** False if no route can exist: goal has no edges or lies in another component than start. */
+    private boolean connected(int start, int goal) {
+        return goal >= 0 && graph.connected(start, goal);
+    }
 
-        Node startNode = new Node(start, null, 0.0, hStart, 0);
-        fringe.add(startNode);
-        bestG.put(start, 0.0);
+    /** Keeps up to `capacity` results of search(start, goal, algo) for repeated queries. */
+    void enableCache(int capacity) {
+        cache = new ResultCache(capacity);
+    }
+
+    /** Hit, miss and eviction counts of the result cache, or null when it is off. */
+    String cacheStats() {
+        return cache == null ? null : cache.stats();
+    }
+
+    private Result solve(Workspace w, String start, String goal, String algo) {
+        int s = graph.id(start);
+        int t = graph.id(goal);
+        if (s < 0) {
+            // A city without edges: the root is generated and popped but has no successors
+            return start.equals(goal)
+                    ? new Result(1, 0, 1, 0.0, Collections.emptyList())
+                    : Result.noRoute(1, 1, 1);
+        }
+        Result r = solve(w, s, t, algo);
+        return distanceOnly ? r.withoutRoute() : r;
+    }
+
+    private Result solve(Workspace w, int start, int goal, String algo) {
+        if (!connected(start, goal)) {
+            return Result.noRoute(0, 0, 0); // different components (or a goal without edges): nothing to search
+        }
+        if ("bidijkstra".equalsIgnoreCase(algo)) {
+            return w.bidirectional().search(start, goal);
+        }
+        if ("biastar".equalsIgnoreCase(algo)) {
+            final Landmarks alt = landmarks;
+            final double[] h = heuristic;
+            final GoalTable toGoal = goalTables.get(goal), toStart = goalTables.get(start);
+            if (toGoal != null && toGoal.estimate(start) == Double.POSITIVE_INFINITY) {
+                return Result.noRoute(0, 0, 1); // the exact table already proves the goal unreachable
+            }
+            if (alt != null || toGoal != null || toStart != null) {
+                return w.bidirectional().search(start, goal,
+                        v -> estimate(toGoal, alt, h, v, goal),
+                        toStart == null && alt == null ? null : v -> estimate(toStart, alt, h, v, start));
+            }
+            // per-goal file: no estimate toward the start, which averaging allows
+            return w.bidirectional().search(start, goal, v -> h[v], null);
+        }
+        if ("ch".equalsIgnoreCase(algo)) {
+            return w.hierarchyQuery().search(start, goal);
+        }
+        if ("delta".equalsIgnoreCase(algo)) {
+            return deltaStepping().search(start, goal);
+        }
+        if ("hl".equalsIgnoreCase(algo)) {
+            return hubLabels().search(start, goal, !distanceOnly);
+        }
+
+        // With --compress-chains only core cities are searched; shortcuts() joins a start or goal inside a chain
+        final ChainGraph chains = this.chains;
+        final int[] offsets = chains == null ? graph.offsets : chains.offsets;
+        final int[] targets = chains == null ? graph.targets : chains.targets;
+        final double[] weights = chains == null ? graph.weights : chains.weights;
+        final int[] viaTo = chains == null ? null : new int[3];
+        final double[] viaWeight = chains == null ? null : new double[3];
+
+        final double[] heuristic = this.heuristic;
+        final Landmarks alt = landmarks;
+        final GoalTable exact = goalTables.get(goal);
+        final long[] flags = arcFlags == null || goal < 0 ? null : arcFlags.flags;
+        final long goalBit = flags == null ? 0L : arcFlags.goalBit(goal);
+
+        final boolean greedy = "greedy".equalsIgnoreCase(algo);
+        final SearchContext ctx = w.ctx;
+        final Fringe fringe = fringeFor(w, greedy, exact, alt);
+
+        ctx.reset();
+        fringe.clear();
+        ctx.label(start, 0.0, -1, 0);
+        double hStart = estimate(exact, alt, heuristic, start, goal);
+        if (hStart != Double.POSITIVE_INFINITY) fringe.push(start, 0.0, hStart); // Infinity: provably no route
         // generated includes the root when it hits the fringe
-        nodesGenerated = 1;
-        nodesPopped = 0;
-        nodesExpanded = 0;
+        ctx.nodesGenerated = 1;
+        ctx.nodesPopped = 0;
+        ctx.nodesExpanded = 0;
+        ctx.relaxationsPruned = 0;
 
         while (!fringe.isEmpty()) {
-            Node cur = fringe.poll();
-            nodesPopped++;
+            int v = fringe.pop();
+            double gv = fringe.poppedG();
+            ctx.nodesPopped++;
 
-            if (cur.name.equals(goal)) {
-                return reconstruct(cur);
+            if (v == goal) {
+                return reconstruct(ctx, goal);
             }
 
-            nodesExpanded++;
+            ctx.nodesExpanded++;
 
-            // closed-set-ish behavior via bestG: only expand if this is the current best path
-            double recorded = bestG.getOrDefault(cur.name, Double.POSITIVE_INFINITY);
-            if (cur.g > recorded + 1e-9) {
-                // stale entry
+            // closed-set-ish behavior via the best g: only expand if this is the current best path
+            if (gv > ctx.g(v) + 1e-9) {
+                // stale entry (only the pq fringe keeps superseded entries)
                 continue;
             }
 
-            for (Edge e : adj.getOrDefault(cur.name, Collections.emptyList())) {
-                double newG = cur.g + e.cost;
-                double prevBest = bestG.getOrDefault(e.to, Double.POSITIVE_INFINITY);
+            int childDepth = ctx.depth(v) + 1;
+            for (int e = offsets[v], end = offsets[v + 1]; e < end; e++) {
+                if (flags != null && (flags[e] & goalBit) == 0) {
+                    ctx.relaxationsPruned++; // on no shortest route into the goal's region
+                    continue;
+                }
+                int to = targets[e];
+                double newG = gv + weights[e];
 
-                boolean better = newG + 1e-9 < prevBest;
+                boolean better = newG + 1e-9 < ctx.g(to);
                 if (better) {
-                    bestG.put(e.to, newG);
-                    double h = heuristic.getOrDefault(e.to, 0.0);
-                    Node next = new Node(e.to, cur, newG, h, cur.depth + 1);
-                    fringe.add(next);
-                    nodesGenerated++;
+                    ctx.label(to, newG, v, childDepth);
+                    double h = estimate(exact, alt, heuristic, to, goal);
+                    if (h == Double.POSITIVE_INFINITY) continue; // cannot reach the goal: never worth queueing
+                    fringe.push(to, newG, greedy ? h : newG + h); // decrease-key if already queued
+                    ctx.nodesGenerated++;
+                }
+            }
+            int via = chains == null ? 0 : chains.shortcuts(v, start, goal, viaTo, viaWeight);
+            for (int i = 0; i < via; i++) {
+                int to = viaTo[i];
+                double newG = gv + viaWeight[i];
+                if (newG + 1e-9 < ctx.g(to)) {
+                    ctx.label(to, newG, v, childDepth);
+                    double h = estimate(exact, alt, heuristic, to, goal);
+                    if (h == Double.POSITIVE_INFINITY) continue;
+                    fringe.push(to, newG, greedy ? h : newG + h);
+                    ctx.nodesGenerated++;
                 }
             }
         }
 
-        return Result.noRoute(nodesPopped, nodesExpanded, nodesGenerated);
+        Result none = Result.noRoute(ctx.nodesPopped, ctx.nodesExpanded, ctx.nodesGenerated);
+        return flags == null ? none : none.withPruned(ctx.relaxationsPruned);
     }
 
-    // ===== Result & route reconstruction =====
-    private Result reconstruct(Node goalNode) {
-        List<Node> path = new ArrayList<>();
-        Node cur = goalNode;
-        while (cur != null) {
-            path.add(cur);
-            cur = cur.parent;
-        }
-        Collections.reverse(path);
+    /** A new fringe of the kind fringeFor picks for uniform-cost search. */
+    private Fringe uniformCostFringe() {
+        if (!"auto".equalsIgnoreCase(fringeKind) || !graph.integralWeights) return newFringe(fringeKind);
+        return graph.maxWeight <= DIAL_MAX_WEIGHT
+                ? new DialQueue(graph.nodeCount(), (long) graph.maxWeight, graph.nameRank)
+                : new RadixHeap(graph.nodeCount(), graph.nameRank);
+    }
 
-        // Build segment breakdown
-        List<String> lines = new ArrayList<>();
-        for (int i = 0; i < path.size() - 1; i++) {
-            Node a = path.get(i);
-            Node b = path.get(i + 1);
-            lines.add(String.format("%s to %s, %.1f km", a.name, b.name, b.g - a.g));
+    /**
+     * The fringe for one A* / uniform-cost search. With --fringe auto, integral weights and
+     * integral estimates every key is a whole number, so a monotone integer queue replaces
+     * the context's comparison-based fringe: Dial's buckets for uniform-cost search with
+     * small weights, a radix heap otherwise. Greedy keys are not monotone and keep it.
+     */
+    private Fringe fringeFor(Workspace w, boolean greedy, GoalTable exact, Landmarks alt) {
+        SearchContext ctx = w.ctx;
+        if (!"auto".equalsIgnoreCase(fringeKind) || greedy || !graph.integralWeights) return ctx.fringe;
+        if (exact == null && alt == null && !heuristicLoaded) {
+            return searchedMaxWeight() <= DIAL_MAX_WEIGHT ? w.dial() : w.radix();
         }
+        // landmark bounds are differences of integral distances; hot-goal tables store them as floats
+        return exact != null || alt != null || heuristicIntegral ? w.radix() : ctx.fringe;
+    }
 
-        return new Result(nodesPopped, nodesExpanded, nodesGenerated, goalNode.g, lines);
+    // ===== Result & route reconstruction =====
+    private Result reconstruct(SearchContext ctx, int goal) {
+        int[] path = ctx.pathTo(goal); // walks the int parent array back to the root
+        if (chains != null) path = chains.expand(graph, path); // chain legs back to the cities along them
+        Result r = Result.route(graph, path, ctx.nodesPopped, ctx.nodesExpanded, ctx.nodesGenerated);
+        return arcFlags == null ? r : r.withPruned(ctx.relaxationsPruned);
     }
 
     public static class Result {
         final int popped, expanded, generated;
         final double distance; // Infinity if unreachable
-        final List<String> routeLines;
+        final List<String> routeLines; // null when only the distance was asked for (--distance-only)
+        final int pruned;              // relaxations skipped by arc flags, -1 when they are off
 
         static Result noRoute(int popped, int expanded, int generated) {
             return new Result(popped, expanded, generated, Double.POSITIVE_INFINITY, Collections.emptyList());
         }
 
+        /**
+         * Builds the segment breakdown of a root-first path of city ids. Labels can be improved
+         * after a child was generated (greedy / inconsistent h), so each leg is priced by its own edge.
+         */
+        static Result route(Graph graph, int[] path, int popped, int expanded, int generated) {
+            List<String> lines = new ArrayList<>(Math.max(0, path.length - 1));
+            double distance = 0.0;
+            for (int i = 0; i + 1 < path.length; i++) {
+                int a = path[i];
+                int b = path[i + 1];
+                double leg = graph.arcWeight(a, b);
+                distance += leg;
+                lines.add(String.format("%s to %s, %.1f km", graph.name(a), graph.name(b), leg));
+            }
+            return new Result(popped, expanded, generated, distance, lines);
+        }
+
         Result(int popped, int expanded, int generated, double distance, List<String> routeLines) {
+            this(popped, expanded, generated, distance, routeLines, -1);
+        }
+
+        private Result(int popped, int expanded, int generated, double distance, List<String> routeLines, int pruned) {
             this.popped = popped;
             this.expanded = expanded;
             this.generated = generated;
             this.distance = distance;
             this.routeLines = routeLines;
+            this.pruned = pruned;
         }
 
-        void print() {
-            System.out.println("\nNodes Popped: " + popped);
-            System.out.println("Nodes Expanded: " + expanded);
-            System.out.println("Nodes Generated: " + generated);
-            if (!Double.isFinite(distance)) {
-                System.out.println("Distance: Infinity");
-                System.out.println("Route:");
-                System.out.println("None");
+        Result withoutRoute() {
+            return routeLines == null ? this : new Result(popped, expanded, generated, distance, null, pruned);
+        }
+
+        Result withPruned(int relaxations) {
+            return new Result(popped, expanded, generated, distance, routeLines, relaxations);
+        }
+
+        void print() { print(System.out); }
+
+        void print(PrintStream out) {
+            out.println("\nNodes Popped: " + popped);
+            out.println("Nodes Expanded: " + expanded);
+            out.println("Nodes Generated: " + generated);
+            if (pruned >= 0) out.println("Relaxations Pruned: " + pruned);
+            if (routeLines == null) {
+                if (Double.isFinite(distance)) out.printf("Distance: %.1f km%n", distance);
+                else out.println("Distance: Infinity");
+            } else if (!Double.isFinite(distance)) {
+                out.println("Distance: Infinity");
+                out.println("Route:");
+                out.println("None");
             } else {
-                System.out.printf("Distance: %.1f km%n", distance);
-                System.out.println("Route:");
-                for (String s : routeLines) System.out.println(s);
+                out.printf("Distance: %.1f km%n", distance);
+                out.println("Route:");
+                for (String s : routeLines) out.println(s);
             }
         }
     }
 
     // ===== Main / CLI parsing =====
-    public static void main(String[] args) {
-        if (args.length < 3) {
-            System.err.println("Usage: java FindRoute <edgesFile> <startCity> <goalCity> [--heuristic <heurFile>] [--algo astar|greedy]");
-            return;
-        }
+    private static final String USAGE =
+            "Usage: java FindRoute <edgesFile> <startCity> <goalCity> [--heuristic <heurFile> | --landmarks <k>] [--algo astar|greedy|bidijkstra|biastar|ch|delta|hl] [--fringe auto|pq|binary|4ary]\n"
+          + "       java FindRoute <edgesFile> --queries <queryFile> [--threads <n>] [--heuristic <heurFile> | --landmarks <k>] [--algo astar|greedy|bidijkstra|biastar|ch|delta|hl] [--fringe auto|pq|binary|4ary]\n"
+          + "       java FindRoute <edgesFile> --serve <port> [--heuristic <heurFile> | --landmarks <k>] [--algo astar|greedy|bidijkstra|biastar|ch|delta|hl] [--fringe auto|pq|binary|4ary]\n"
+          + "       java FindRoute <edgesFile> --compile-graph <snapshotFile> [--heuristic <heurFile>]\n"
+          + "       java FindRoute <edgesFile> --distances-from <city> [--threads <n>]\n"
+          + "       java FindRoute <edgesFile> --matrix <sourcesFile> [--matrix-targets <targetsFile>] [--matrix-format csv|binary] [--threads <n>]\n"
+          + "       (search modes also take [--hub-labels <file>], [--arc-flags <regions>], [--compress-chains], [--cache <size>] and [--distance-only])";
 
-        String edgesFile = args[0];
-        String start = args[1];
-        String goal = args[2];
+    public static void main(String[] args) {
+        List<String> positional = new ArrayList<>();
         String heurFile = null;
         String algo = "astar"; // default if heuristics are present
-
-        for (int i = 3; i < args.length; i++) {
+        String fringeKind = "auto";
+        String compileOut = null;
+        String queryFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int servePort = -1;
+        String distancesFrom = null;
+        int landmarkCount = 0;
+        String landmarkStrategy = "avoid";
+        String hotGoals = null;
+        String heuristicCache = new File(System.getProperty("java.io.tmpdir"), "find-route-goals").getPath();
+        String hubLabelFile = null;
+        int arcFlagRegions = 0;
+        int cacheSize = 0;
+        String matrixSources = null;
+        String matrixTargets = null;
+        String matrixFormat = "csv";
+        boolean distanceOnly = false;
+        boolean compressChains = false;
+
+        for (int i = 0; i < args.length; i++) {
             if ("--heuristic".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
                 heurFile = args[++i];
             } else if ("--algo".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
                 algo = args[++i];
+            } else if ("--fringe".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                fringeKind = args[++i];
+            } else if ("--compile-graph".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                compileOut = args[++i];
+            } else if ("--queries".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                queryFile = args[++i];
+            } else if ("--threads".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                threads = positiveOption("--threads", args[++i], Integer.MAX_VALUE);
+                if (threads < 0) return;
+            } else if ("--serve".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                servePort = positiveOption("--serve", args[++i], 65535);
+                if (servePort < 0) return;
+            } else if ("--distances-from".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                distancesFrom = args[++i];
+            } else if ("--landmarks".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                landmarkCount = positiveOption("--landmarks", args[++i], Integer.MAX_VALUE);
+                if (landmarkCount < 0) return;
+            } else if ("--landmark-strategy".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                landmarkStrategy = args[++i];
+            } else if ("--hot-goals".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                hotGoals = args[++i];
+            } else if ("--heuristic-cache".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                heuristicCache = args[++i];
+            } else if ("--hub-labels".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                hubLabelFile = args[++i];
+            } else if ("--arc-flags".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                arcFlagRegions = positiveOption("--arc-flags", args[++i], Integer.MAX_VALUE);
+                if (arcFlagRegions < 0) return;
+            } else if ("--matrix".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                matrixSources = args[++i];
+            } else if ("--matrix-targets".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                matrixTargets = args[++i];
+            } else if ("--matrix-format".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                matrixFormat = args[++i];
+            } else if ("--cache".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                cacheSize = positiveOption("--cache", args[++i], Integer.MAX_VALUE);
+                if (cacheSize < 0) return;
+            } else if ("--distance-only".equalsIgnoreCase(args[i])) {
+                distanceOnly = true;
+            } else if ("--compress-chains".equalsIgnoreCase(args[i])) {
+                compressChains = true;
+            } else {
+                positional.add(args[i]);
             }
         }
+        if (positional.isEmpty() || (compileOut == null && queryFile == null && servePort < 0 && distancesFrom == null && matrixSources == null && positional.size() < 3)) {
+            System.err.println(USAGE);
+            return;
+        }
+        if (!isFringeKind(fringeKind)) {
+            System.err.println("Unknown fringe: " + fringeKind + " (expected auto, pq, binary or 4ary)");
+            return;
+        }
+        if (!DistanceMatrix.isFormat(matrixFormat)) {
+            System.err.println("Unknown matrix format: " + matrixFormat + " (expected csv or binary)");
+            return;
+        }
+        if (!Landmarks.isStrategy(landmarkStrategy)) {
+            System.err.println("Unknown landmark strategy: " + landmarkStrategy + " (expected farthest or avoid)");
+            return;
+        }
+
+        String edgesFile = positional.get(0); // text edges or a --compile-graph snapshot
 
         FindRoute app = new FindRoute();
+        app.fringeKind = fringeKind;
+        app.threads = threads;
+        app.distanceOnly = distanceOnly;
         try {
             app.loadEdges(edgesFile); // expects lines like: "CityA CityB 123", ending with "END OF INPUT".
             if (heurFile != null) {
                 app.loadHeuristics(heurFile); // expects lines like: "City 200", ending with "END OF INPUT".
-            } else {
-                // no heuristic file -> all zeros => uniform-cost behavior regardless of algo flag
-                app.heuristic.clear();
-                algo = "astar";
+            }
+            if (landmarkCount > 0) {
+                try {
+                    app.buildLandmarks(landmarkCount, landmarkStrategy); // bounds toward any goal replace the per-goal file
+                } catch (IllegalArgumentException e) { // table larger than one array
+                    System.err.println(e.getMessage());
+                    return;
+                }
+            }
+            if (hotGoals != null) {
+                app.loadHotGoals(hotGoals, heuristicCache); // exact tables take precedence for their goals
+            }
+            if (cacheSize > 0) {
+                app.enableCache(cacheSize); // in front of search: batch and server repeats are answered from memory
+            }
+            if (arcFlagRegions > 0) {
+                app.buildArcFlags(arcFlagRegions); // A* and uniform-cost search skip arcs flagged off for the goal
+            } else if (compressChains) {
+                app.compressChains(); // A* and uniform-cost search skip over degree-2 cities
+            }
+            if (hubLabelFile != null) {
+                app.loadHubLabels(hubLabelFile); // builds the file on the first run for this graph
+            }
+            if (!app.hasEstimates()) {
+                // no heuristic file -> all zeros => uniform-cost behavior (greedy degenerates to it too)
+                Arrays.fill(app.heuristic, 0.0);
+                if ("greedy".equalsIgnoreCase(algo)) algo = "astar";
+            }
+
+            if (compileOut != null) {
+                GraphSnapshot.write(compileOut, app.graph, app.heuristicLoaded ? app.heuristic : null);
+                System.out.printf("Compiled %d cities, %d arcs into %s%n", app.graph.nodeCount(), app.graph.arcCount(), compileOut);
+                return;
+            }
+
+            if (distancesFrom != null) {
+                PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+                app.printDistancesFrom(distancesFrom, out);
+                out.flush();
+                return;
+            }
+
+            if (matrixSources != null) {
+                OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16);
+                app.printMatrix(matrixSources, matrixTargets, matrixFormat, out);
+                out.flush();
+                return;
+            }
+
+            if (servePort >= 0) {
+                RouteServer server = new RouteServer(app, app.hasEstimates(), algo, servePort);
+                Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+                server.start();
+                System.out.println("Serving " + app.graph.nodeCount() + " cities on http://localhost:" + server.port() + "/route?from=&to=&algo=");
+                return; // the server's threads keep the JVM alive
+            }
+
+            if (queryFile != null) {
+                // one graph load amortized over every query; results stream through a buffered stdout
+                PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+                BatchRunner.run(app, BatchRunner.readQueries(queryFile), algo, threads, out);
+                out.flush();
+                return;
             }
 
-            Result r = app.search(start, goal, algo);
+            Result r = app.search(positional.get(1), positional.get(2), algo);
             r.print();
 
         } catch (IOException e) {
@@ -0,0 +1,21 @@
+/**
+ * Fringe.java
+ * Priority queue of city ids used by the search loop. Keys are primitive doubles
+ * (g + h for A*, h for greedy); equal keys are broken by name rank so every
+ * implementation pops cities in the same order as the original comparator.
+ */
+interface Fringe {
+
+    void clear();
+
+    boolean isEmpty();
+
+    /** Queues v with the given key, or updates its key if v is already queued (when supported). */
+    void push(int v, double g, double key);
+
+    /** Removes the entry with the smallest key and returns its city id. */
+    int pop();
+
+    /** The g that was pushed with the entry returned by the last pop(). */
+    double poppedG();
+}
@@ -0,0 +1,101 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * GoalTable.java
+ * Exact distance-to-goal table for one hot destination (--hot-goals), used as a
+ * perfect A* heuristic: with h = d(v, goal) only cities on shortest routes are expanded.
+ * The table is one reverse search from the goal (the graph is undirected, so this is a
+ * plain one-to-all from it), stored as floats rounded down so the value never exceeds
+ * the true distance, in a file under --heuristic-cache named after a fingerprint of the
+ * graph and the goal id. Later runs on the same graph memory-map the file instead of
+ * searching again; a file for another graph or an older layout is rebuilt.
+ *
+ * Layout (big-endian):
+ *   int magic 'FRGT', int version, long graph fingerprint, int goal id, int nodeCount,
+ *   float[nodeCount] distance to goal (Infinity where the goal is unreachable)
+ */
+final class GoalTable {
+
+    static final int MAGIC = 0x46524754; // "FRGT"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+
+    /** One-to-all distances from a city, e.g. DeltaStepping.distancesFrom. */
+    interface Distances {
+        double[] from(int source);
+    }
+
+    final int goal;
+    private final FloatBuffer h;
+
+    private GoalTable(int goal, FloatBuffer h) {
+        this.goal = goal;
+        this.h = h;
+    }
+
+    /** Lower bound (exact up to float rounding) on the distance from v to the goal. */
+    double estimate(int v) { return h.get(v); }
+
+    /** Maps the cached table for goal, computing and writing it first if it is missing or stale. */
+    static GoalTable open(Graph graph, long fingerprint, int goal, String cacheDir, Distances distances) throws IOException {
+        Path dir = Paths.get(cacheDir);
+        Files.createDirectories(dir);
+        Path file = dir.resolve(String.format("%016x-%d.goal", fingerprint, goal));
+        int n = graph.nodeCount();
+        if (!matches(file, fingerprint, goal, n)) write(file, fingerprint, goal, distances.from(goal));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer body = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 4L * n);
+            return new GoalTable(goal, body.asFloatBuffer()); // the mapping outlives the channel
+        }
+    }
+
+    private static boolean matches(Path file, long fingerprint, int goal, int n) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) != HEADER_BYTES + 4L * n) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), HEADER_BYTES))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION && in.readLong() == fingerprint
+                    && in.readInt() == goal && in.readInt() == n;
+        }
+    }
+
+    /** Writes through a temporary file and renames it, so a concurrent reader never sees half a table. */
+    private static void write(Path file, long fingerprint, int goal, double[] dist) throws IOException {
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(goal);
+            out.writeInt(dist.length);
+            for (double d : dist) out.writeFloat(roundDown(d));
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Nearest float not above d, so the stored heuristic stays admissible. */
+    static float roundDown(double d) {
+        float f = (float) d;
+        return f > d ? Math.nextDown(f) : f;
+    }
+
+    /** 64-bit hash of the names and CSR arrays; any change to the graph changes the cache key. */
+    static long fingerprint(Graph graph) {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, graph.nodeCount());
+        h = mix(h, graph.arcCount());
+        for (int x : graph.names().nameHashes()) h = mix(h, x);
+        for (int x : graph.offsets) h = mix(h, x);
+        for (int x : graph.targets) h = mix(h, x);
+        for (double w : graph.weights) h = mix(h, Double.doubleToLongBits(w));
+        return h;
+    }
+
+    private static long mix(long h, long x) {
+        h ^= x;
+        h *= 0x100000001b3L; // FNV-1a prime, applied per value instead of per byte
+        return h ^ (h >>> 29);
+    }
+}
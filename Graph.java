@@ -0,0 +1,201 @@
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Graph.java
+ * Immutable road graph in compressed-sparse-row (CSR) form.
+ * Every city is interned once to a dense int id; the arcs leaving node v are
+ * targets[offsets[v] .. offsets[v + 1]) with the matching weights[].
+ * Each undirected input edge is stored as two arcs, in file order per node.
+ * The connected component of every city is known from loading (union-find in the
+ * Builder), so a pair in different components is answered without searching.
+ */
+final class Graph {
+
+    // Name <-> id dictionary
+    private final NameTable names;
+
+    // CSR arrays (read directly by the search loops)
+    final int[] offsets;
+    final int[] targets;
+    final double[] weights;
+
+    // Position of each id in lexicographic name order; used as the fringe tie-break
+    final int[] nameRank;
+
+    // Edge-weight distribution (0 for a graph without edges); tunes delta-stepping
+    final double minWeight, maxWeight, meanWeight;
+    final boolean integralWeights; // every weight a non-negative whole number: bucket queues apply
+
+    // Connected component number by city id
+    final int[] component;
+
+    private Graph(NameTable names, int[] offsets, int[] targets, double[] weights, double min, double max, double mean, boolean integral,
+                  int[] component) {
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.nameRank = rankByName(names);
+        this.minWeight = min;
+        this.maxWeight = max;
+        this.meanWeight = mean;
+        this.integralWeights = integral;
+        this.component = component;
+    }
+
+    /**
+     * Assembles a graph from arrays that were already built, e.g. by GraphSnapshot.
+     * component may be null (older snapshots); it is then computed from the arcs.
+     */
+    Graph(NameTable names, int[] offsets, int[] targets, double[] weights, int[] nameRank, int[] component) {
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.nameRank = nameRank;
+        double min = Double.POSITIVE_INFINITY, max = 0.0, sum = 0.0;
+        boolean integral = true;
+        for (double w : weights) {
+            min = Math.min(min, w);
+            max = Math.max(max, w);
+            sum += w;
+            integral &= isWholeNumber(w);
+        }
+        this.minWeight = weights.length == 0 ? 0.0 : min;
+        this.maxWeight = max;
+        this.meanWeight = weights.length == 0 ? 0.0 : sum / weights.length;
+        this.integralWeights = integral;
+        this.component = component != null ? component : Components.of(names.size(), offsets, targets);
+    }
+
+    /** Non-negative, integral and within the range where doubles are exact integers. */
+    static boolean isWholeNumber(double x) {
+        return x >= 0 && x <= (1L << 53) && x == Math.rint(x);
+    }
+
+    int nodeCount() { return names.size(); }
+    int arcCount() { return targets.length; }
+
+    /** Returns the id of a city, or -1 if it does not appear in the edges file. */
+    int id(String name) { return names.find(name); }
+
+    /** Same as id(String) for a name held as UTF-8 bytes in src[off, off + len). */
+    int id(ByteBuffer src, int off, int len) { return names.find(src, off, len); }
+
+    String name(int id) { return names.name(id); }
+
+    /** True if some route joins a and b (same connected component). */
+    boolean connected(int a, int b) { return component[a] == component[b]; }
+
+    NameTable names() { return names; }
+
+    /** Cheapest arc from a to b (parallel edges are allowed), or Infinity if they are not adjacent. */
+    double arcWeight(int a, int b) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int e = offsets[a], end = offsets[a + 1]; e < end; e++) {
+            if (targets[e] == b && weights[e] < best) best = weights[e];
+        }
+        return best;
+    }
+
+    private static int[] rankByName(NameTable names) {
+        Integer[] order = new Integer[names.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparing(names::name));
+        int[] rank = new int[order.length];
+        for (int r = 0; r < order.length; r++) rank[order[r]] = r;
+        return rank;
+    }
+
+    // ===== Builder =====
+    static final class Builder {
+        private final NameTable names = new NameTable();
+
+        // Edge list in input order, turned into CSR by build()
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private double[] cost = new double[16];
+        private int edgeCount = 0;
+
+        // Weight statistics, kept as edges arrive
+        private double minCost = Double.POSITIVE_INFINITY, maxCost = 0.0, sumCost = 0.0;
+        private boolean integralCosts = true;
+
+        // Connected components, merged as edges arrive
+        private final Components components = new Components();
+
+        int intern(String name) { return names.intern(name); }
+
+        int intern(ByteBuffer src, int off, int len) { return names.intern(src, off, len); }
+
+        /** Adds an undirected edge between two interned ids. */
+        void addEdge(int a, int b, double d) {
+            if (edgeCount == from.length) grow(edgeCount + 1);
+            from[edgeCount] = a;
+            to[edgeCount] = b;
+            cost[edgeCount] = d;
+            edgeCount++;
+            minCost = Math.min(minCost, d);
+            maxCost = Math.max(maxCost, d);
+            sumCost += d;
+            integralCosts &= isWholeNumber(d);
+            components.union(a, b);
+        }
+
+        /**
+         * Appends the names and edges a chunk-local builder collected. Names are
+         * re-interned in the chunk's first-seen order, so merging chunks in file order
+         * yields the same ids and arc order as a single sequential pass.
+         */
+        void append(Builder chunk) {
+            int[] remap = new int[chunk.names.size()];
+            for (int i = 0; i < remap.length; i++) remap[i] = names.intern(chunk.names, i);
+            if (edgeCount + chunk.edgeCount > from.length) grow(edgeCount + chunk.edgeCount);
+            for (int i = 0; i < chunk.edgeCount; i++) {
+                from[edgeCount] = remap[chunk.from[i]];
+                to[edgeCount] = remap[chunk.to[i]];
+                cost[edgeCount] = chunk.cost[i];
+                components.union(from[edgeCount], to[edgeCount]);
+                edgeCount++;
+            }
+            minCost = Math.min(minCost, chunk.minCost);
+            maxCost = Math.max(maxCost, chunk.maxCost);
+            sumCost += chunk.sumCost;
+            integralCosts &= chunk.integralCosts;
+        }
+
+        private void grow(int min) {
+            int cap = Math.max(from.length * 2, min);
+            from = Arrays.copyOf(from, cap);
+            to = Arrays.copyOf(to, cap);
+            cost = Arrays.copyOf(cost, cap);
+        }
+
+        Graph build() {
+            int n = names.size();
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                offsets[from[i] + 1]++;
+                offsets[to[i] + 1]++;
+            }
+            for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+
+            // Stable fill: arcs of each node keep the order their edges appeared in the file
+            int[] next = Arrays.copyOf(offsets, n);
+            int[] targets = new int[2 * edgeCount];
+            double[] weights = new double[2 * edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                int a = from[i], b = to[i];
+                targets[next[a]] = b;
+                weights[next[a]++] = cost[i];
+                targets[next[b]] = a;
+                weights[next[b]++] = cost[i];
+            }
+            int[] component = components.labels(n);
+            return edgeCount == 0
+                    ? new Graph(names, offsets, targets, weights, 0.0, 0.0, 0.0, true, component)
+                    : new Graph(names, offsets, targets, weights, minCost, maxCost, sumCost / edgeCount, integralCosts, component);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * GraphGenerator.java
+ * Synthetic road networks for load and scaling tests, written in the same
+ * "CityA CityB Distance" format FindRoute reads (ending with END OF INPUT), plus an
+ * optional matching heuristic file for one goal city.
+ *
+ * Usage:
+ *   java GraphGenerator grid|geometric|scalefree <cities> <edgesOut>
+ *                       [--seed <n>] [--degree <d>] [--heuristic-out <heurFile>] [--goal <city>]
+ * Topologies:
+ *   - grid:      ceil(sqrt(cities))^2 junctions, 4-neighbour streets, 10 km apart.
+ *   - geometric: random points, each joined to every point within the radius that
+ *                gives an average degree of --degree (default 6).
+ *   - scalefree: Barabasi-Albert preferential attachment, --degree / 2 links per new city.
+ * Every city gets planar coordinates and every edge costs ceil(straight line * (1 + noise))
+ * whole kilometres, so floor(straight line to goal) is an admissible and consistent
+ * heuristic. The same seed always produces byte-identical files.
+ */
+public class GraphGenerator {
+
+    private static final double SPACING = 10.0; // km between neighbouring grid junctions
+    private static final double NOISE = 0.3;    // edges are up to 30% longer than the straight line
+
+    private final Random rnd;
+    private double[] x, y;
+    private long edgesWritten = 0;
+
+    private GraphGenerator(long seed) {
+        this.rnd = new Random(seed);
+    }
+
+    static String city(int id) { return "N" + id; }
+
+    // ===== Topologies =====
+    private int grid(int cities, Writer out) throws IOException {
+        int side = (int) Math.ceil(Math.sqrt(cities));
+        int n = side * side;
+        x = new double[n];
+        y = new double[n];
+        for (int v = 0; v < n; v++) {
+            x[v] = (v % side) * SPACING;
+            y[v] = (v / side) * SPACING;
+        }
+        for (int v = 0; v < n; v++) {
+            if (v % side + 1 < side) edge(out, v, v + 1);
+            if (v + side < n) edge(out, v, v + side);
+        }
+        return n;
+    }
+
+    private int geometric(int n, double degree, Writer out) throws IOException {
+        double extent = Math.sqrt(n) * SPACING;
+        randomPoints(n, extent);
+        double radius = Math.sqrt(degree * extent * extent / (Math.PI * n));
+
+        // Bucket points into radius-sized cells (counting sort) so only adjacent cells are compared
+        int cells = Math.max(1, (int) (extent / radius));
+        double cellSize = extent / cells;
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[n];
+        for (int v = 0; v < n; v++) {
+            int cx = Math.min(cells - 1, (int) (x[v] / cellSize));
+            int cy = Math.min(cells - 1, (int) (y[v] / cellSize));
+            cellOf[v] = cy * cells + cx;
+            cellStart[cellOf[v] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++) cellStart[c + 1] += cellStart[c];
+        int[] fill = Arrays.copyOf(cellStart, cells * cells);
+        int[] members = new int[n];
+        for (int v = 0; v < n; v++) members[fill[cellOf[v]]++] = v;
+
+        double r2 = radius * radius;
+        for (int v = 0; v < n; v++) {
+            int cx = cellOf[v] % cells, cy = cellOf[v] / cells;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = cx + dx, ny = cy + dy;
+                    if (nx < 0 || ny < 0 || nx >= cells || ny >= cells) continue;
+                    int c = ny * cells + nx;
+                    for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                        int w = members[k];
+                        if (w <= v) continue; // each pair once
+                        double ddx = x[v] - x[w], ddy = y[v] - y[w];
+                        if (ddx * ddx + ddy * ddy <= r2) edge(out, v, w);
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    private int scaleFree(int n, double degree, Writer out) throws IOException {
+        randomPoints(n, Math.sqrt(n) * SPACING);
+        int links = Math.max(1, (int) Math.round(degree / 2));
+        // Every edge endpoint is appended once, so a uniform pick is degree-proportional
+        int[] endpoints = new int[2 * links * n];
+        int count = 0;
+        int[] chosen = new int[links];
+        for (int v = 1; v < n; v++) {
+            int want = Math.min(links, v);
+            int picked = 0;
+            while (picked < want) {
+                int w = count == 0 ? 0 : endpoints[rnd.nextInt(count)];
+                boolean duplicate = false;
+                for (int k = 0; k < picked; k++) duplicate |= chosen[k] == w;
+                if (!duplicate) chosen[picked++] = w; // every older city has an endpoint, so this terminates
+            }
+            for (int k = 0; k < picked; k++) {
+                edge(out, v, chosen[k]);
+                endpoints[count++] = v;
+                endpoints[count++] = chosen[k];
+            }
+        }
+        return n;
+    }
+
+    private void randomPoints(int n, double extent) {
+        x = new double[n];
+        y = new double[n];
+        for (int v = 0; v < n; v++) {
+            x[v] = rnd.nextDouble() * extent;
+            y[v] = rnd.nextDouble() * extent;
+        }
+    }
+
+    // ===== Output =====
+    private double straightLine(int a, int b) {
+        return Math.hypot(x[a] - x[b], y[a] - y[b]);
+    }
+
+    private void edge(Writer out, int a, int b) throws IOException {
+        long km = Math.max(1, (long) Math.ceil(straightLine(a, b) * (1 + NOISE * rnd.nextDouble())));
+        out.write(city(a));
+        out.write(' ');
+        out.write(city(b));
+        out.write(' ');
+        out.write(Long.toString(km));
+        out.write('\n');
+        edgesWritten++;
+    }
+
+    private void writeHeuristics(String heurFile, int n, int goal) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(heurFile), 1 << 20)) {
+            for (int v = 0; v < n; v++) {
+                out.write(city(v));
+                out.write(' ');
+                out.write(Long.toString((long) Math.floor(straightLine(v, goal))));
+                out.write('\n');
+            }
+            out.write("END OF INPUT\n");
+        }
+    }
+
+    // ===== Main / CLI parsing =====
+    private static final String USAGE =
+            "Usage: java GraphGenerator grid|geometric|scalefree <cities> <edgesOut> [--seed <n>] [--degree <d>] [--heuristic-out <heurFile>] [--goal <city>]";
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            return;
+        }
+
+        String topology = args[0];
+        int cities;
+        String edgesFile = args[2];
+        long seed = 1L;
+        double degree = 6.0;
+        String heurFile = null;
+        String goalCity = null;
+
+        try {
+            cities = Integer.parseInt(args[1]);
+            for (int i = 3; i < args.length; i++) {
+                if ("--seed".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                    seed = Long.parseLong(args[++i]);
+                } else if ("--degree".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                    degree = Double.parseDouble(args[++i]);
+                } else if ("--heuristic-out".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                    heurFile = args[++i];
+                } else if ("--goal".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                    goalCity = args[++i];
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Not a number: " + e.getMessage().replace("For input string: ", ""));
+            System.err.println(USAGE);
+            return;
+        }
+        if (cities <= 0 || !(degree > 0.0) || Double.isInfinite(degree)) {
+            System.err.println("The city count and --degree must be positive");
+            System.err.println(USAGE);
+            return;
+        }
+
+        if (!"grid".equalsIgnoreCase(topology) && !"geometric".equalsIgnoreCase(topology) && !"scalefree".equalsIgnoreCase(topology)) {
+            System.err.println("Unknown topology: " + topology + " (expected grid, geometric or scalefree)");
+            return;
+        }
+
+        GraphGenerator gen = new GraphGenerator(seed);
+        try {
+            int n;
+            try (Writer out = new BufferedWriter(new FileWriter(edgesFile), 1 << 20)) {
+                if ("grid".equalsIgnoreCase(topology)) n = gen.grid(cities, out);
+                else if ("geometric".equalsIgnoreCase(topology)) n = gen.geometric(cities, degree, out);
+                else n = gen.scaleFree(cities, degree, out);
+                out.write("END OF INPUT\n");
+            }
+            System.out.printf("Wrote %d cities, %d edges to %s%n", n, gen.edgesWritten, edgesFile);
+
+            if (heurFile != null) {
+                int goal = n - 1;
+                if (goalCity != null) {
+                    goal = goalCity.matches("N[0-9]{1,9}") ? Integer.parseInt(goalCity.substring(1)) : -1; // N<id>, within int range
+                    if (goal < 0 || goal >= n) {
+                        System.err.println("Unknown goal city: " + goalCity + " (expected N0 .. N" + (n - 1) + ")");
+                        return;
+                    }
+                }
+                gen.writeHeuristics(heurFile, n, goal);
+                System.out.printf("Wrote heuristics toward %s to %s%n", city(goal), heurFile);
+            }
+        } catch (IOException e) {
+            System.err.println("File error: " + e.getMessage());
+        }
+    }
+}
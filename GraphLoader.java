@@ -0,0 +1,194 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GraphLoader.java
+ * Parallel loader for the edges and heuristics files.
+ * The file is cut into line-aligned byte ranges that are scanned concurrently on the
+ * common ForkJoinPool. Each chunk fills its own name table and edge buffer; chunks are
+ * merged in file order, so ids, arc order and the END / END OF INPUT cut-off come out
+ * exactly as from a single sequential pass.
+ */
+final class GraphLoader {
+
+    private static final long MIN_CHUNK = 4L << 20;  // smaller files are read on the calling thread
+    private static final int ABORT_CHECK = 4096;     // lines between checks for an earlier END
+
+    private GraphLoader() { }
+
+    // ===== Edges =====
+    static Graph loadEdges(String edgesFile) throws IOException {
+        try (FileChannel channel = MappedLines.openChannel(edgesFile)) {
+            long[] bounds = chunkBounds(channel);
+            AtomicInteger firstEnd = new AtomicInteger(Integer.MAX_VALUE);
+            List<EdgeChunk> chunks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                chunks.add(new EdgeChunk(channel, i, bounds[i], bounds[i + 1], firstEnd));
+            }
+            runAll(chunks);
+
+            if (chunks.size() == 1) return chunks.get(0).edges.build();
+            Graph.Builder builder = new Graph.Builder();
+            for (EdgeChunk c : chunks) {
+                builder.append(c.edges);
+                if (c.terminated) break;
+            }
+            return builder.build();
+        }
+    }
+
+    private static final class EdgeChunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final FileChannel channel;
+        final int index;
+        final long from, to;
+        final AtomicInteger firstEnd;
+        final Graph.Builder edges = new Graph.Builder();
+        boolean terminated;
+
+        EdgeChunk(FileChannel channel, int index, long from, long to, AtomicInteger firstEnd) {
+            this.channel = channel;
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.firstEnd = firstEnd;
+        }
+
+        @Override protected void compute() {
+            try (MappedLines in = MappedLines.region(channel, from, to)) {
+                int lines = 0;
+                while (in.next()) {
+                    if (++lines % ABORT_CHECK == 0 && firstEnd.get() < index) return; // discarded anyway
+                    if (in.tokenCount() == 0) continue;
+                    if (in.isTerminator()) {
+                        terminated = true;
+                        firstEnd.accumulateAndGet(index, Math::min);
+                        return;
+                    }
+                    if (in.tokenCount() < 3) continue;
+                    ByteBuffer buf = in.buffer();
+                    int a = edges.intern(buf, in.start(0), in.length(0));
+                    int b = edges.intern(buf, in.start(1), in.length(1));
+                    double d = in.parseDouble(2);
+                    edges.addEdge(a, b, d); // undirected
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // ===== Heuristics =====
+    /** Returns h(n) by city id; cities without edges are ignored, later lines win. */
+    static double[] loadHeuristics(String heurFile, Graph graph) throws IOException {
+        try (FileChannel channel = MappedLines.openChannel(heurFile)) {
+            long[] bounds = chunkBounds(channel);
+            AtomicInteger firstEnd = new AtomicInteger(Integer.MAX_VALUE);
+            List<HeuristicChunk> chunks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                chunks.add(new HeuristicChunk(channel, graph, i, bounds[i], bounds[i + 1], firstEnd));
+            }
+            runAll(chunks);
+
+            double[] heuristic = new double[graph.nodeCount()];
+            for (HeuristicChunk c : chunks) {
+                for (int k = 0; k < c.count; k++) heuristic[c.ids[k]] = c.values[k];
+                if (c.terminated) break;
+            }
+            return heuristic;
+        }
+    }
+
+    private static final class HeuristicChunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final FileChannel channel;
+        final Graph graph;
+        final int index;
+        final long from, to;
+        final AtomicInteger firstEnd;
+        int[] ids = new int[64];
+        double[] values = new double[64];
+        int count;
+        boolean terminated;
+
+        HeuristicChunk(FileChannel channel, Graph graph, int index, long from, long to, AtomicInteger firstEnd) {
+            this.channel = channel;
+            this.graph = graph;
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.firstEnd = firstEnd;
+        }
+
+        @Override protected void compute() {
+            try (MappedLines in = MappedLines.region(channel, from, to)) {
+                int lines = 0;
+                while (in.next()) {
+                    if (++lines % ABORT_CHECK == 0 && firstEnd.get() < index) return;
+                    if (in.tokenCount() == 0) continue;
+                    if (in.isTerminator()) {
+                        terminated = true;
+                        firstEnd.accumulateAndGet(index, Math::min);
+                        return;
+                    }
+                    if (in.tokenCount() < 2) continue;
+                    int city = graph.id(in.buffer(), in.start(0), in.length(0)); // read-only lookup
+                    double h = in.parseDouble(1);
+                    if (city < 0) continue; // cities without edges can never be on a route
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                        values = Arrays.copyOf(values, count * 2);
+                    }
+                    ids[count] = city;
+                    values[count++] = h;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // ===== Chunking =====
+    /** Splits the file into line-aligned ranges: bounds[i] .. bounds[i + 1]. */
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int parts = (int) Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4L, size / MIN_CHUNK));
+        long[] bounds = new long[parts + 1];
+        bounds[parts] = size;
+        for (int i = 1; i < parts; i++) {
+            bounds[i] = lineStartAtOrAfter(channel, Math.max(size / parts * i, bounds[i - 1]), size);
+        }
+        return bounds;
+    }
+
+    private static long lineStartAtOrAfter(FileChannel channel, long pos, long size) throws IOException {
+        if (pos == 0) return 0;
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long at = pos - 1; // a line starts at pos if the byte before it is '\n'
+        while (at < size) {
+            probe.clear();
+            int n = channel.read(probe, at);
+            if (n <= 0) break;
+            for (int k = 0; k < n; k++) {
+                if (probe.get(k) == '\n') return at + k + 1;
+            }
+            at += n;
+        }
+        return size;
+    }
+
+    private static void runAll(List<? extends RecursiveAction> chunks) throws IOException {
+        try {
+            if (chunks.size() == 1) chunks.get(0).invoke();
+            else ForkJoinTask.invokeAll(chunks);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
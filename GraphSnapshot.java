@@ -0,0 +1,159 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * GraphSnapshot.java
+ * Versioned binary image of a loaded graph, written by --compile-graph.
+ * Holds the name dictionary (including its hash slots, so nothing is rehashed),
+ * the name ranks, the CSR arrays and optionally the heuristic values. Reading
+ * memory-maps the file and bulk-copies each section, with no text parsing.
+ *
+ * Layout (big-endian):
+ *   int magic 'FRGS', int version, int nodeCount, int arcCount, int poolSize,
+ *   int slotCount, int flags (bit 0: heuristics present),
+ *   byte[poolSize] names, int[n + 1] nameStart, int[n] nameHash, int[slotCount] slots,
+ *   int[n] nameRank, int[n + 1] offsets, int[m] targets, double[m] weights,
+ *   int[n] component (version 2 on), double[n] heuristic (if present)
+ * Version 1 snapshots are still read; their components are computed on load.
+ */
+final class GraphSnapshot {
+
+    static final int MAGIC = 0x46524753; // "FRGS"
+    static final int VERSION = 2;
+    private static final int HEADER_BYTES = 7 * 4;
+    private static final int FLAG_HEURISTIC = 1;
+    private static final long WINDOW = 1L << 30;
+
+    final Graph graph;
+    final double[] heuristic; // null if the snapshot was compiled without a heuristic file
+
+    private GraphSnapshot(Graph graph, double[] heuristic) {
+        this.graph = graph;
+        this.heuristic = heuristic;
+    }
+
+    /** True if the file starts with the snapshot magic number (anything else is treated as text). */
+    static boolean isSnapshot(String file) throws IOException {
+        try (FileChannel channel = MappedLines.openChannel(file)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            while (head.hasRemaining() && channel.read(head) > 0) { }
+            return !head.hasRemaining() && head.getInt(0) == MAGIC;
+        }
+    }
+
+    // ===== Writing =====
+    static void write(String file, Graph graph, double[] heuristic) throws IOException {
+        NameTable names = graph.names();
+        byte[] pool = names.poolBytes();
+        int[] slots = names.hashSlots();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(graph.nodeCount());
+            out.writeInt(graph.arcCount());
+            out.writeInt(pool.length);
+            out.writeInt(slots.length);
+            out.writeInt(heuristic != null ? FLAG_HEURISTIC : 0);
+            out.write(pool);
+            writeInts(out, names.startOffsets());
+            writeInts(out, names.nameHashes());
+            writeInts(out, slots);
+            writeInts(out, graph.nameRank);
+            writeInts(out, graph.offsets);
+            writeInts(out, graph.targets);
+            writeDoubles(out, graph.weights);
+            writeInts(out, graph.component);
+            if (heuristic != null) writeDoubles(out, heuristic);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int v : values) out.writeInt(v);
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        for (double v : values) out.writeDouble(v);
+    }
+
+    // ===== Reading =====
+    static GraphSnapshot read(String file) throws IOException {
+        try (FileChannel channel = MappedLines.openChannel(file)) {
+            Sections in = new Sections(channel);
+            ByteBuffer header = in.map(HEADER_BYTES);
+            if (header.getInt(0) != MAGIC) throw new IOException(file + " is not a graph snapshot");
+            int version = header.getInt(4);
+            if (version < 1 || version > VERSION) {
+                throw new IOException(file + ": unsupported snapshot version " + version + " (expected 1 to " + VERSION + ")");
+            }
+            int n = header.getInt(8);
+            int m = header.getInt(12);
+            int poolSize = header.getInt(16);
+            int slotCount = header.getInt(20);
+            int flags = header.getInt(24);
+
+            byte[] pool = in.bytes(poolSize);
+            int[] nameStart = in.ints(n + 1);
+            int[] nameHash = in.ints(n);
+            int[] slots = in.ints(slotCount);
+            int[] nameRank = in.ints(n);
+            int[] offsets = in.ints(n + 1);
+            int[] targets = in.ints(m);
+            double[] weights = in.doubles(m);
+            int[] component = version >= 2 ? in.ints(n) : null; // null: Graph recomputes it
+            double[] heuristic = (flags & FLAG_HEURISTIC) != 0 ? in.doubles(n) : null;
+
+            Graph graph = new Graph(new NameTable(pool, nameStart, nameHash, slots), offsets, targets, weights, nameRank, component);
+            return new GraphSnapshot(graph, heuristic);
+        }
+    }
+
+    /** Sequential reader that maps each section (in windows of at most 1 GiB) and bulk-copies it. */
+    private static final class Sections {
+        private final FileChannel channel;
+        private final long size;
+        private long position = 0;
+
+        Sections(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        ByteBuffer map(long bytes) throws IOException {
+            if (position + bytes > size) throw new EOFException("Truncated graph snapshot");
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+            position += bytes;
+            return buf;
+        }
+
+        byte[] bytes(int count) throws IOException {
+            byte[] out = new byte[count];
+            for (int done = 0; done < count; ) {
+                int chunk = (int) Math.min(WINDOW, count - done);
+                map(chunk).get(out, done, chunk);
+                done += chunk;
+            }
+            return out;
+        }
+
+        int[] ints(int count) throws IOException {
+            int[] out = new int[count];
+            for (int done = 0; done < count; ) {
+                int chunk = (int) Math.min(WINDOW / 4, count - done);
+                map(4L * chunk).asIntBuffer().get(out, done, chunk);
+                done += chunk;
+            }
+            return out;
+        }
+
+        double[] doubles(int count) throws IOException {
+            double[] out = new double[count];
+            for (int done = 0; done < count; ) {
+                int chunk = (int) Math.min(WINDOW / 8, count - done);
+                map(8L * chunk).asDoubleBuffer().get(out, done, chunk);
+                done += chunk;
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * HubLabels.java
+ * Hub-labeling distance oracle (--algo hl). Every city v keeps a label: a list of
+ * (hub, d(v, hub), parent) entries such that any two cities share a hub on one of
+ * their shortest routes, so
+ *   d(s, t) = min over common hubs h of d(s, h) + d(h, t)
+ * and a query is one merge of two label arrays sorted by hub.
+ *
+ * Labels are built by pruned Dijkstra (pruned landmark labeling) with the contraction
+ * hierarchy's order: the most important city first, each search adding itself as a
+ * hub to every city it settles, except where the labels built so far already give a
+ * distance at most as short, which also stops the search there. Hubs are numbered in
+ * that order, so appending keeps every label sorted. The hierarchy leaves its dense core
+ * ranked by id, so core cities are reordered by how many routes pass through them in a
+ * few sampled shortest-path trees.
+ * The parent of an entry is the previous city on the route from the hub; it was settled
+ * by the same search without being pruned, so it holds the same hub, and routes are
+ * recovered by walking parents down to the hub from both ends (skipped with --distance-only).
+ * Reported counters: Nodes Popped = label entries scanned by the merge.
+ *
+ * Persisted with --hub-labels <file> and memory-mapped by later runs (rebuilt when the
+ * file belongs to another graph or an older layout). Layout (big-endian):
+ *   int magic 'FRHL', int version, long graph fingerprint, int nodeCount, int entryCount,
+ *   int[nodeCount + 1] label offsets, int[entryCount] hub numbers,
+ *   double[entryCount] distances, int[entryCount] parent cities (-1 at the hub itself)
+ * Sections are mapped in windows of at most 1 GiB, so the distances of more than 2^28
+ * entries (over 2 GiB) can still be mapped.
+ */
+final class HubLabels {
+
+    static final int MAGIC = 0x4652484C; // "FRHL"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+    private static final int SAMPLE_TREES = 16; // trees that rank the core; more only refines the order
+    private static final long SEED = 1L;        // their random roots; fixed for reproducible labels
+    private static final int WINDOW_SHIFT = 27;  // entries per mapped window: 2^27 (512 MiB of ints, 1 GiB of doubles)
+
+    private final Graph graph;
+    private final Ints offsets;
+    private final Ints hubs;
+    private final Doubles dist;
+    private final Ints parents;
+
+    private HubLabels(Graph graph, Ints offsets, Ints hubs, Doubles dist, Ints parents) {
+        this.graph = graph;
+        this.offsets = offsets;
+        this.hubs = hubs;
+        this.dist = dist;
+        this.parents = parents;
+    }
+
+    int entryCount() { return hubs.length; }
+
+    // ===== Query =====
+    /** Shortest route (or only its distance when withRoute is false); thread-safe, the buffers are only read. */
+    FindRoute.Result search(int start, int goal, boolean withRoute) {
+        if (goal < 0) return FindRoute.Result.noRoute(0, 0, 1); // a goal without edges is unreachable
+        if (start == goal) return FindRoute.Result.route(graph, new int[] { start }, 0, 0, 0);
+
+        int i = offsets.get(start), iEnd = offsets.get(start + 1);
+        int j = offsets.get(goal), jEnd = offsets.get(goal + 1);
+        int scanned = (iEnd - i) + (jEnd - j);
+        double best = Double.POSITIVE_INFINITY;
+        int bestI = -1, bestJ = -1;
+        while (i < iEnd && j < jEnd) {
+            int hi = hubs.get(i), hj = hubs.get(j);
+            if (hi < hj) {
+                i++;
+            } else if (hi > hj) {
+                j++;
+            } else {
+                double d = dist.get(i) + dist.get(j);
+                if (d < best) {
+                    best = d;
+                    bestI = i;
+                    bestJ = j;
+                }
+                i++;
+                j++;
+            }
+        }
+        if (bestI < 0) return FindRoute.Result.noRoute(scanned, 0, 0);
+        if (!withRoute) return new FindRoute.Result(scanned, 0, 0, best, null);
+
+        int[] up = toHub(start, bestI);   // start .. hub
+        int[] down = toHub(goal, bestJ);  // goal .. hub
+        int[] path = Arrays.copyOf(up, up.length + down.length - 1);
+        for (int k = down.length - 2, p = up.length; k >= 0; k--) path[p++] = down[k];
+        return FindRoute.Result.route(graph, path, scanned, 0, 0);
+    }
+
+    /** Cities from v to the hub of its label entry e, following parents through the labels. */
+    private int[] toHub(int v, int e) {
+        int hub = hubs.get(e);
+        int[] path = new int[8];
+        int len = 0;
+        while (true) {
+            if (len == path.length) path = Arrays.copyOf(path, len * 2);
+            path[len++] = v;
+            int p = parents.get(e);
+            if (p < 0) return Arrays.copyOf(path, len);
+            v = p;
+            e = find(v, hub);
+        }
+    }
+
+    /** Entry of `hub` in v's label (binary search; present by construction). */
+    private int find(int v, int hub) {
+        int lo = offsets.get(v), hi = offsets.get(v + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int h = hubs.get(mid);
+            if (h < hub) lo = mid + 1;
+            else if (h > hub) hi = mid - 1;
+            else return mid;
+        }
+        throw new IllegalStateException("Hub " + hub + " missing from the label of " + graph.name(v));
+    }
+
+    // ===== Preprocessing =====
+    /** Pruned labeling in decreasing contraction rank. */
+    static HubLabels build(Graph graph, ContractionHierarchy ch) {
+        int n = graph.nodeCount();
+        int[] order = new int[n]; // hub number -> city
+        for (int v = 0; v < n; v++) order[n - 1 - ch.rank[v]] = v;
+        IndexedHeap heap = new IndexedHeap(n, 4, graph.nameRank);
+        SearchContext labels = new SearchContext(n, heap);
+        orderCore(graph, order, n - ch.coreStart, heap, labels);
+
+        int[][] labelHub = new int[n][];
+        double[][] labelDist = new double[n][];
+        int[][] labelParent = new int[n][];
+        int[] size = new int[n];
+        for (int v = 0; v < n; v++) {
+            labelHub[v] = new int[4];
+            labelDist[v] = new double[4];
+            labelParent[v] = new int[4];
+        }
+
+        double[] rootDist = new double[n]; // hub number -> d(root, hub) from the root's label
+        Arrays.fill(rootDist, Double.POSITIVE_INFINITY);
+        long total = 0;
+
+        for (int h = 0; h < n; h++) {
+            int root = order[h];
+            for (int k = 0; k < size[root]; k++) rootDist[labelHub[root][k]] = labelDist[root][k];
+            labels.reset();
+            heap.clear();
+            labels.label(root, 0.0, -1, 0);
+            heap.push(root, 0.0, 0.0);
+            while (!heap.isEmpty()) {
+                int v = heap.pop();
+                double gv = labels.g(v);
+                if (covered(labelHub[v], labelDist[v], size[v], rootDist, gv)) continue;
+
+                int k = size[v]++;
+                if (k == labelHub[v].length) {
+                    labelHub[v] = Arrays.copyOf(labelHub[v], k * 2);
+                    labelDist[v] = Arrays.copyOf(labelDist[v], k * 2);
+                    labelParent[v] = Arrays.copyOf(labelParent[v], k * 2);
+                }
+                labelHub[v][k] = h;
+                labelDist[v][k] = gv;
+                labelParent[v][k] = labels.parent(v);
+                total++;
+
+                int childDepth = labels.depth(v) + 1;
+                for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                    int to = graph.targets[e];
+                    double ng = gv + graph.weights[e];
+                    if (ng < labels.g(to)) {
+                        labels.label(to, ng, v, childDepth);
+                        heap.push(to, ng, ng);
+                    }
+                }
+            }
+            for (int k = 0; k < size[root]; k++) rootDist[labelHub[root][k]] = Double.POSITIVE_INFINITY;
+        }
+        if (total > Integer.MAX_VALUE) throw new IllegalStateException("Too many hub label entries: " + total);
+
+        int m = (int) total;
+        int[] offsets = new int[n + 1];
+        int[] hubs = new int[m];
+        double[] dist = new double[m];
+        int[] parents = new int[m];
+        for (int v = 0; v < n; v++) {
+            int at = offsets[v];
+            offsets[v + 1] = at + size[v];
+            System.arraycopy(labelHub[v], 0, hubs, at, size[v]);
+            System.arraycopy(labelDist[v], 0, dist, at, size[v]);
+            System.arraycopy(labelParent[v], 0, parents, at, size[v]);
+            labelHub[v] = null; // let the copies replace the per-city arrays as we go
+            labelDist[v] = null;
+            labelParent[v] = null;
+        }
+        return new HubLabels(graph, new Ints(offsets), new Ints(hubs), new Doubles(dist), new Ints(parents));
+    }
+
+    /**
+     * Sorts the first `core` hub numbers (the hierarchy's core) by the number of
+     * descendants each city has, summed over sampled shortest-path trees.
+     */
+    private static void orderCore(Graph graph, int[] order, int core, IndexedHeap heap, SearchContext labels) {
+        if (core < 2) return;
+        int n = graph.nodeCount();
+        long[] through = new long[n];
+        int[] settled = new int[n];
+        int[] below = new int[n];
+        Random rnd = new Random(SEED);
+        for (int t = 0; t < SAMPLE_TREES; t++) {
+            int root = rnd.nextInt(n);
+            labels.reset();
+            heap.clear();
+            labels.label(root, 0.0, -1, 0);
+            heap.push(root, 0.0, 0.0);
+            int count = 0;
+            while (!heap.isEmpty()) {
+                int v = heap.pop();
+                settled[count++] = v;
+                below[v] = 1;
+                double gv = labels.g(v);
+                for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                    int to = graph.targets[e];
+                    double ng = gv + graph.weights[e];
+                    if (ng < labels.g(to)) {
+                        labels.label(to, ng, v, 0);
+                        heap.push(to, ng, ng);
+                    }
+                }
+            }
+            for (int i = count - 1; i > 0; i--) { // children before parents
+                int v = settled[i];
+                through[v] += below[v];
+                below[labels.parent(v)] += below[v];
+            }
+        }
+        Integer[] top = new Integer[core];
+        for (int h = 0; h < core; h++) top[h] = order[h];
+        Arrays.sort(top, (a, b) -> Long.compare(through[b], through[a])); // stable: ties keep the hierarchy order
+        for (int h = 0; h < core; h++) order[h] = top[h];
+    }
+
+    /** True if the label built so far already reaches the current root within d. */
+    private static boolean covered(int[] hub, double[] dist, int size, double[] rootDist, double d) {
+        for (int k = 0; k < size; k++) {
+            if (dist[k] + rootDist[hub[k]] <= d) return true;
+        }
+        return false;
+    }
+
+    // ===== File =====
+    /** Maps the labels in file, building and writing them first if the file is missing or stale. */
+    static HubLabels open(Graph graph, long fingerprint, String file, Supplier<HubLabels> build) throws IOException {
+        Path path = Paths.get(file);
+        int n = graph.nodeCount();
+        int m = entriesIfMatches(path, fingerprint, n);
+        if (m < 0) {
+            HubLabels built = build.get();
+            built.write(path, fingerprint);
+            m = built.entryCount();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long at = HEADER_BYTES;
+            Ints offsets = Ints.map(channel, at, n + 1);
+            at += 4L * (n + 1);
+            Ints hubs = Ints.map(channel, at, m);
+            at += 4L * m;
+            Doubles dist = Doubles.map(channel, at, m);
+            at += 8L * m;
+            Ints parents = Ints.map(channel, at, m);
+            return new HubLabels(graph, offsets, hubs, dist, parents); // the mappings outlive the channel
+        }
+    }
+
+    private static int windowCount(int entries) {
+        return Math.max(1, (int) ((entries + (1L << WINDOW_SHIFT) - 1) >>> WINDOW_SHIFT));
+    }
+
+    /** Byte buffers covering count entries of `width` bytes from `at`, 2^WINDOW_SHIFT entries each. */
+    private static ByteBuffer[] mapWindows(FileChannel channel, long at, int count, int width) throws IOException {
+        ByteBuffer[] windows = new ByteBuffer[windowCount(count)];
+        for (int w = 0; w < windows.length; w++) {
+            long first = (long) w << WINDOW_SHIFT;
+            long entries = Math.min(1 << WINDOW_SHIFT, count - first);
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, at + first * width, entries * width);
+        }
+        return windows;
+    }
+
+    /** An int section: one array after a build, or windows of a mapped file. */
+    private static final class Ints {
+        final IntBuffer[] windows;
+        final int length;
+
+        Ints(int[] values) {
+            windows = new IntBuffer[windowCount(values.length)];
+            for (int w = 0; w < windows.length; w++) {
+                int first = w << WINDOW_SHIFT;
+                windows[w] = IntBuffer.wrap(values, first, Math.min(1 << WINDOW_SHIFT, values.length - first)).slice();
+            }
+            length = values.length;
+        }
+
+        private Ints(IntBuffer[] windows, int length) {
+            this.windows = windows;
+            this.length = length;
+        }
+
+        static Ints map(FileChannel channel, long at, int count) throws IOException {
+            ByteBuffer[] bytes = mapWindows(channel, at, count, 4);
+            IntBuffer[] windows = new IntBuffer[bytes.length];
+            for (int w = 0; w < bytes.length; w++) windows[w] = bytes[w].asIntBuffer();
+            return new Ints(windows, count);
+        }
+
+        int get(int i) { return windows[i >>> WINDOW_SHIFT].get(i & ((1 << WINDOW_SHIFT) - 1)); }
+    }
+
+    /** A double section: one array after a build, or windows of a mapped file. */
+    private static final class Doubles {
+        final DoubleBuffer[] windows;
+
+        Doubles(double[] values) {
+            windows = new DoubleBuffer[windowCount(values.length)];
+            for (int w = 0; w < windows.length; w++) {
+                int first = w << WINDOW_SHIFT;
+                windows[w] = DoubleBuffer.wrap(values, first, Math.min(1 << WINDOW_SHIFT, values.length - first)).slice();
+            }
+        }
+
+        private Doubles(DoubleBuffer[] windows) {
+            this.windows = windows;
+        }
+
+        static Doubles map(FileChannel channel, long at, int count) throws IOException {
+            ByteBuffer[] bytes = mapWindows(channel, at, count, 8);
+            DoubleBuffer[] windows = new DoubleBuffer[bytes.length];
+            for (int w = 0; w < bytes.length; w++) windows[w] = bytes[w].asDoubleBuffer();
+            return new Doubles(windows);
+        }
+
+        double get(int i) { return windows[i >>> WINDOW_SHIFT].get(i & ((1 << WINDOW_SHIFT) - 1)); }
+    }
+
+    /** Entry count recorded in file if it holds labels for this graph in the current layout, else -1. */
+    private static int entriesIfMatches(Path file, long fingerprint, int n) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) < HEADER_BYTES) return -1;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), HEADER_BYTES))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != fingerprint || in.readInt() != n) return -1;
+            int m = in.readInt();
+            return Files.size(file) == HEADER_BYTES + 4L * (n + 1) + 16L * m ? m : -1;
+        }
+    }
+
+    /** Writes through a temporary file and renames it, so a concurrent reader never sees half the labels. */
+    private void write(Path file, long fingerprint) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        int n = graph.nodeCount(), m = entryCount();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(n);
+            out.writeInt(m);
+            for (int v = 0; v <= n; v++) out.writeInt(offsets.get(v));
+            for (int e = 0; e < m; e++) out.writeInt(hubs.get(e));
+            for (int e = 0; e < m; e++) out.writeDouble(dist.get(e));
+            for (int e = 0; e < m; e++) out.writeInt(parents.get(e));
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
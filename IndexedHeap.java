@@ -0,0 +1,126 @@
+import java.util.*;
+
+/**
+ * IndexedHeap.java
+ * Indexed d-ary min-heap over int city ids with primitive double keys and a real
+ * decrease-key. Each city occupies at most one slot, so the fringe never holds
+ * stale entries and its size is bounded by the number of cities.
+ * Arity 2 is a classic binary heap; arity 4 halves the depth and keeps the
+ * children of a slot in one cache line, which pays off on dense graphs.
+ */
+final class IndexedHeap implements Fringe {
+
+    private final int arity;
+    private final int[] nameRank;
+
+    private final int[] heap;     // slot -> city id
+    private final double[] keys;  // slot -> key (kept next to heap[] for locality)
+    private final int[] pos;      // city id -> slot, -1 if not queued
+    private final double[] g;     // city id -> g pushed with its current key
+    private int size = 0;
+    private double poppedG;
+
+    IndexedHeap(int nodeCount, int arity, int[] nameRank) {
+        if (arity < 2) throw new IllegalArgumentException("Heap arity must be at least 2: " + arity);
+        this.arity = arity;
+        this.nameRank = nameRank;
+        heap = new int[nodeCount];
+        keys = new double[nodeCount];
+        pos = new int[nodeCount];
+        g = new double[nodeCount];
+        Arrays.fill(pos, -1);
+    }
+
+    @Override public void clear() {
+        for (int i = 0; i < size; i++) pos[heap[i]] = -1;
+        size = 0;
+    }
+
+    @Override public boolean isEmpty() { return size == 0; }
+
+    int size() { return size; }
+
+    boolean contains(int v) { return pos[v] >= 0; }
+
+    @Override public void push(int v, double gv, double key) {
+        g[v] = gv;
+        int slot = pos[v];
+        if (slot < 0) {
+            slot = size++;
+            heap[slot] = v;
+            keys[slot] = key;
+            pos[v] = slot;
+            siftUp(slot);
+        } else if (key < keys[slot]) {
+            keys[slot] = key;
+            siftUp(slot);
+        } else if (key > keys[slot]) {
+            keys[slot] = key;
+            siftDown(slot);
+        }
+    }
+
+    @Override public int pop() {
+        int top = heap[0];
+        pos[top] = -1;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            keys[0] = keys[size];
+            pos[heap[0]] = 0;
+            siftDown(0);
+        }
+        poppedG = g[top];
+        return top;
+    }
+
+    /** Smallest key currently queued; only valid when not empty. */
+    double peekKey() { return keys[0]; }
+
+    @Override public double poppedG() { return poppedG; }
+
+    // ===== Heap maintenance =====
+    private boolean less(int v, double kv, int w, double kw) {
+        return kv < kw || (kv == kw && nameRank[v] < nameRank[w]);
+    }
+
+    private void siftUp(int slot) {
+        int v = heap[slot];
+        double k = keys[slot];
+        while (slot > 0) {
+            int p = (slot - 1) / arity;
+            if (!less(v, k, heap[p], keys[p])) break;
+            move(p, slot);
+            slot = p;
+        }
+        place(v, k, slot);
+    }
+
+    private void siftDown(int slot) {
+        int v = heap[slot];
+        double k = keys[slot];
+        while (true) {
+            int first = slot * arity + 1;
+            if (first >= size) break;
+            int best = first;
+            for (int c = first + 1, end = Math.min(first + arity, size); c < end; c++) {
+                if (less(heap[c], keys[c], heap[best], keys[best])) best = c;
+            }
+            if (!less(heap[best], keys[best], v, k)) break;
+            move(best, slot);
+            slot = best;
+        }
+        place(v, k, slot);
+    }
+
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        keys[to] = keys[from];
+        pos[heap[to]] = to;
+    }
+
+    private void place(int v, double k, int slot) {
+        heap[slot] = v;
+        keys[slot] = k;
+        pos[v] = slot;
+    }
+}
@@ -0,0 +1,201 @@
+import java.util.*;
+
+/**
+ * Landmarks.java
+ * ALT preprocessing (--landmarks k): exact shortest-path distances between a few
+ * landmark cities and every city, giving a lower bound toward any goal by the
+ * triangle inequality
+ *   h(v) = max over landmarks L of |d(L, goal) - d(L, v)|
+ * so A*, greedy and biastar work for arbitrary goals without a heuristic file.
+ * The graph is undirected, so d(L, v) = d(v, L) and one table serves both the
+ * "to landmark" and "from landmark" bounds.
+ *
+ * Selection strategies:
+ *   - farthest: each landmark is the city farthest from the ones chosen so far.
+ *   - avoid:    (Goldberg and Harrelson) grow a shortest-path tree from a random root,
+ *               weigh each city by how badly the current landmarks bound its distance,
+ *               and place the next landmark at a leaf of the heaviest subtree that does
+ *               not yet contain a landmark.
+ * A landmark in another component than v or the goal has infinite distances and is
+ * skipped for that bound.
+ */
+final class Landmarks {
+
+    private static final long SEED = 1L; // random roots of the avoid strategy; fixed for reproducible runs
+    private static final long MAX_ENTRIES = Integer.MAX_VALUE - 8; // largest array the JVM allocates
+
+    final int[] landmarks;
+    private final int k;
+    private final double[] dist; // dist[v * k + i] = d(landmarks[i], v); city-major so one bound reads one run
+
+    private Landmarks(int[] landmarks, double[] dist) {
+        this.landmarks = landmarks;
+        this.k = landmarks.length;
+        this.dist = dist;
+    }
+
+    static boolean isStrategy(String strategy) {
+        return "farthest".equalsIgnoreCase(strategy) || "avoid".equalsIgnoreCase(strategy);
+    }
+
+    /** Lower bound on d(v, goal); 0 for an unknown goal or when no landmark reaches both. */
+    double lowerBound(int v, int goal) {
+        if (goal < 0) return 0.0;
+        double best = 0.0;
+        int bv = v * k, bg = goal * k;
+        for (int i = 0; i < k; i++) {
+            double dv = dist[bv + i], dg = dist[bg + i];
+            if (dv == Double.POSITIVE_INFINITY || dg == Double.POSITIVE_INFINITY) continue;
+            double bound = Math.abs(dg - dv);
+            if (bound > best) best = bound;
+        }
+        return best;
+    }
+
+    // ===== Preprocessing =====
+    static Landmarks build(Graph graph, int count, String strategy) {
+        int n = graph.nodeCount();
+        count = Math.min(count, n);
+        if ((long) n * count > MAX_ENTRIES) { // beyond this the int indices v * k + i would overflow
+            throw new IllegalArgumentException("Too many landmarks: " + count + " x " + n + " cities exceeds one table of "
+                    + MAX_ENTRIES + " distances (at most " + MAX_ENTRIES / n + " landmarks for this graph)");
+        }
+        boolean avoid = "avoid".equalsIgnoreCase(strategy);
+        Tree tree = new Tree(graph);
+        Random rnd = new Random(SEED);
+
+        int[] chosen = new int[count];
+        double[] dist = new double[n * count];
+        double[] nearest = new double[n]; // distance to the closest landmark so far (farthest strategy)
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        boolean[] isLandmark = new boolean[n];
+
+        for (int i = 0; i < count; i++) {
+            int next = -1;
+            if (i == 0) {
+                tree.grow(0);
+                next = tree.farthest();
+            } else if (avoid) {
+                next = tree.avoid(rnd.nextInt(n), new Landmarks(Arrays.copyOf(chosen, i), compact(dist, n, count, i)), isLandmark);
+            }
+            if (next < 0) next = farthestFrom(nearest, isLandmark); // also covers avoid when every subtree has one
+
+            chosen[i] = next;
+            isLandmark[next] = true;
+            tree.grow(next);
+            for (int v = 0; v < n; v++) {
+                double d = tree.g(v);
+                dist[v * count + i] = d;
+                if (d < nearest[v]) nearest[v] = d;
+            }
+        }
+        return new Landmarks(chosen, dist);
+    }
+
+    /**
+     * The city farthest from all landmarks. Cities no landmark reaches (small islands
+     * of a disconnected graph) are only picked once nothing reachable is left.
+     */
+    private static int farthestFrom(double[] nearest, boolean[] isLandmark) {
+        int best = -1, island = -1;
+        for (int v = 0; v < nearest.length; v++) {
+            if (isLandmark[v]) continue;
+            if (nearest[v] == Double.POSITIVE_INFINITY) {
+                if (island < 0) island = v;
+            } else if (best < 0 || nearest[v] > nearest[best]) {
+                best = v;
+            }
+        }
+        return best >= 0 ? best : island;
+    }
+
+    /** The first `used` columns of a city-major table with `stride` columns. */
+    private static double[] compact(double[] dist, int n, int stride, int used) {
+        double[] out = new double[n * used];
+        for (int v = 0; v < n; v++) System.arraycopy(dist, v * stride, out, v * used, used);
+        return out;
+    }
+
+    /** Shortest-path tree from one root (plain Dijkstra), kept for reading distances and parents. */
+    private static final class Tree {
+        final Graph graph;
+        final IndexedHeap heap;
+        final SearchContext labels;
+        final int[] order;  // cities in the order they were settled
+        int settled = 0;
+
+        Tree(Graph graph) {
+            this.graph = graph;
+            int n = graph.nodeCount();
+            heap = new IndexedHeap(n, 4, graph.nameRank);
+            labels = new SearchContext(n, heap);
+            order = new int[n];
+        }
+
+        void grow(int root) {
+            labels.reset();
+            heap.clear();
+            settled = 0;
+            labels.label(root, 0.0, -1, 0);
+            heap.push(root, 0.0, 0.0);
+            while (!heap.isEmpty()) {
+                int v = heap.pop();
+                order[settled++] = v;
+                double gv = labels.g(v);
+                for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+                    int to = graph.targets[e];
+                    double ng = gv + graph.weights[e];
+                    if (ng < labels.g(to)) {
+                        labels.label(to, ng, v, labels.depth(v) + 1);
+                        heap.push(to, ng, ng);
+                    }
+                }
+            }
+        }
+
+        double g(int v) { return labels.g(v); }
+
+        int farthest() { return order[settled - 1]; }
+
+        /** Next landmark by the avoid rule, or -1 if every weighted subtree already holds a landmark. */
+        int avoid(int root, Landmarks current, boolean[] isLandmark) {
+            grow(root);
+            int n = graph.nodeCount();
+            double[] size = new double[n];
+            boolean[] covered = new boolean[n];
+            // Children before parents: accumulate subtree weights upward in reverse settle order
+            for (int i = settled - 1; i >= 0; i--) {
+                int v = order[i];
+                size[v] += labels.g(v) - current.lowerBound(v, root);
+                covered[v] |= isLandmark[v];
+                int p = labels.parent(v);
+                if (p >= 0) {
+                    size[p] += size[v];
+                    covered[p] |= covered[v];
+                }
+            }
+            int best = -1;
+            for (int i = 0; i < settled; i++) {
+                int v = order[i];
+                if (!covered[v] && size[v] > 0 && (best < 0 || size[v] > size[best])) best = v;
+            }
+            if (best < 0) return -1;
+
+            // Walk down to a leaf, always into the heaviest child
+            int[] child = heaviestChild(size, covered);
+            while (child[best] >= 0) best = child[best];
+            return best;
+        }
+
+        private int[] heaviestChild(double[] size, boolean[] covered) {
+            int[] child = new int[graph.nodeCount()];
+            Arrays.fill(child, -1);
+            for (int i = 1; i < settled; i++) {
+                int v = order[i], p = labels.parent(v);
+                if (covered[v]) continue;
+                if (child[p] < 0 || size[v] > size[child[p]]) child[p] = v;
+            }
+            return child;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import java.util.*;
+
+/**
+ * LazyFringe.java
+ * The original fringe: a java.util.PriorityQueue that receives a fresh entry on
+ * every improvement and leaves the superseded ones behind as stale entries,
+ * which the search loop skips when they are popped.
+ */
+final class LazyFringe implements Fringe {
+
+    private static class Entry {
+        final int id;
+        final double g;    // cumulative cost when pushed (older entries go stale)
+        final double key;  // g + h for A*, h for greedy
+
+        Entry(int id, double g, double key) {
+            this.id = id;
+            this.g = g;
+            this.key = key;
+        }
+    }
+
+    private final PriorityQueue<Entry> queue;
+    private double poppedG;
+
+    LazyFringe(int[] nameRank) {
+        queue = new PriorityQueue<>(Comparator.<Entry>comparingDouble(e -> e.key).thenComparingInt(e -> nameRank[e.id]));
+    }
+
+    @Override public void clear() { queue.clear(); }
+
+    @Override public boolean isEmpty() { return queue.isEmpty(); }
+
+    @Override public void push(int v, double g, double key) { queue.add(new Entry(v, g, key)); }
+
+    @Override public int pop() {
+        Entry e = queue.poll();
+        poppedG = e.g;
+        return e.id;
+    }
+
+    @Override public double poppedG() { return poppedG; }
+}
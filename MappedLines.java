@@ -0,0 +1,207 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * MappedLines.java
+ * Zero-copy line/token scanner over a memory-mapped text file.
+ * Lines are split on bytes <= ' ' (the same characters String.trim removes), tokens
+ * are exposed as offsets into the mapped buffer, and numbers are parsed from the
+ * bytes directly. Files larger than one mapping are walked in line-aligned windows.
+ * A scanner can also cover just a line-aligned byte range of a shared channel, which
+ * is how the parallel loader gives each chunk its own scanner.
+ */
+final class MappedLines implements Closeable {
+
+    static final int MAX_TOKENS = 3;   // the input formats never need more than "CityA CityB Distance"
+    private static final long WINDOW = 1L << 30;
+
+    private static final byte[] END = "END".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END_OF_INPUT = "END OF INPUT".getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long regionEnd;      // exclusive file offset where this scanner stops
+    private long windowStart;          // file offset of buf[0]
+    private ByteBuffer buf;
+    private int cursor = 0;
+
+    // Current line
+    private int tokenCount;
+    private final int[] tokenStart = new int[MAX_TOKENS];
+    private final int[] tokenEnd = new int[MAX_TOKENS];
+    private int lineStart, lineEnd;     // trimmed content
+
+    private MappedLines(FileChannel channel, boolean ownsChannel, long from, long to) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.regionEnd = to;
+        this.windowStart = from;
+        this.buf = mapWindow(from);
+    }
+
+    static MappedLines open(String file) throws IOException {
+        FileChannel channel = openChannel(file);
+        try {
+            return new MappedLines(channel, true, 0, channel.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a file for reading. FileChannel's exceptions carry only the path (or, for a
+     * directory, only the reason), so failures are rethrown as "file (reason)", the way
+     * FileReader words them.
+     */
+    static FileChannel openChannel(String file) throws IOException {
+        Path path = Paths.get(file);
+        if (Files.isDirectory(path)) throw new FileNotFoundException(file + " (Is a directory)");
+        try {
+            return FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw notOpened(file, "No such file or directory", e);
+        } catch (AccessDeniedException e) {
+            throw notOpened(file, "Permission denied", e);
+        } catch (FileSystemException e) {
+            throw notOpened(file, e.getReason() != null ? e.getReason() : e.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static FileNotFoundException notOpened(String file, String reason, FileSystemException cause) {
+        FileNotFoundException e = new FileNotFoundException(file + " (" + reason + ")");
+        e.initCause(cause);
+        return e;
+    }
+
+    /** Scans channel[from, to); both ends must be line starts (or the end of the file). Leaves the channel open. */
+    static MappedLines region(FileChannel channel, long from, long to) throws IOException {
+        return new MappedLines(channel, false, from, to);
+    }
+
+    /** Maps the next window, cut back to its last newline unless it reaches the end of the region. */
+    private ByteBuffer mapWindow(long from) throws IOException {
+        long len = Math.min(WINDOW, regionEnd - from);
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, from, len);
+        int limit = (int) len;
+        if (from + len < regionEnd) {
+            while (limit > 0 && window.get(limit - 1) != '\n') limit--;
+            if (limit == 0) throw new IOException("Line longer than " + WINDOW + " bytes at offset " + from);
+            window.limit(limit);
+        }
+        return window;
+    }
+
+    /** Advances to the next line (blank lines included); false at end of file. */
+    boolean next() throws IOException {
+        if (cursor >= buf.limit()) {
+            long nextStart = windowStart + buf.limit();
+            if (nextStart >= regionEnd) return false;
+            windowStart = nextStart;
+            buf = mapWindow(nextStart);
+            cursor = 0;
+        }
+        ByteBuffer b = buf;
+        int limit = b.limit();
+        int i = cursor;
+        tokenCount = 0;
+        lineStart = -1;
+        lineEnd = -1;
+        while (i < limit) {
+            byte c = b.get(i);
+            if (c == '\n') { i++; break; }
+            if (c <= ' ' && c >= 0) { i++; continue; }
+            int s = i;
+            while (i < limit) {
+                c = b.get(i);
+                if (c <= ' ' && c >= 0) break;
+                i++;
+            }
+            if (tokenCount < MAX_TOKENS) {
+                tokenStart[tokenCount] = s;
+                tokenEnd[tokenCount] = i;
+            }
+            tokenCount++;
+            if (lineStart < 0) lineStart = s;
+            lineEnd = i;
+        }
+        cursor = i;
+        return true;
+    }
+
+    /** Number of whitespace-separated tokens on the line; only the first MAX_TOKENS are addressable. */
+    int tokenCount() { return tokenCount; }
+
+    ByteBuffer buffer() { return buf; }
+
+    int start(int token) { return tokenStart[token]; }
+
+    int length(int token) { return tokenEnd[token] - tokenStart[token]; }
+
+    /** True for the "END" / "END OF INPUT" terminator lines (case-insensitive, after trimming). */
+    boolean isTerminator() {
+        return tokenCount > 0 && (equalsIgnoreCase(END) || equalsIgnoreCase(END_OF_INPUT));
+    }
+
+    private boolean equalsIgnoreCase(byte[] word) {
+        if (lineEnd - lineStart != word.length) return false;
+        for (int k = 0; k < word.length; k++) {
+            int c = buf.get(lineStart + k);
+            if (c >= 'a' && c <= 'z') c -= 'a' - 'A';
+            if (c != word[k]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a token as a double without creating a String. Plain decimals such as
+     * "1360" or "-12.75" take the fast path (an exact long mantissa divided by an exact
+     * power of ten rounds correctly); anything else falls back to Double.parseDouble.
+     */
+    double parseDouble(int token) {
+        ByteBuffer b = buf;
+        int i = tokenStart[token], end = tokenEnd[token];
+        boolean negative = false;
+        byte c = b.get(i);
+        if (c == '-' || c == '+') { negative = c == '-'; i++; }
+
+        long mantissa = 0;
+        int digits = 0, fraction = 0;
+        boolean dot = false;
+        for (; i < end; i++) {
+            c = b.get(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 15) return slowParse(token);
+                mantissa = mantissa * 10 + (c - '0');
+                if (dot) fraction++;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return slowParse(token);
+            }
+        }
+        if (digits == 0) return slowParse(token);
+        double value = fraction == 0 ? (double) mantissa : mantissa / POW10[fraction];
+        return negative ? -value : value;
+    }
+
+    private double slowParse(int token) {
+        byte[] text = new byte[length(token)];
+        for (int k = 0; k < text.length; k++) text[k] = buf.get(tokenStart[token] + k);
+        return Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+    }
+
+    private static final double[] POW10 = new double[16];
+    static {
+        POW10[0] = 1.0;
+        for (int k = 1; k < POW10.length; k++) POW10[k] = POW10[k - 1] * 10.0;
+    }
+
+    @Override public void close() throws IOException {
+        if (ownsChannel) channel.close();
+    }
+}
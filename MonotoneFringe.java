@@ -0,0 +1,145 @@
+import java.util.*;
+
+/**
+ * MonotoneFringe.java
+ * Base of the integer bucket queues (DialQueue, RadixHeap). They only accept
+ * non-negative integral keys that never drop below the last popped key, which holds
+ * for uniform-cost search and for A* with integral weights and estimates: a key below
+ * the last popped one is raised to it (pathmax), which keeps an admissible estimate
+ * admissible.
+ * Every queued city with a key above the last popped one sits in one doubly linked
+ * bucket list threaded through per-city arrays, so decrease-key is an O(1) unlink and
+ * relink and no stale entries are left. Cities whose key equals the last popped key
+ * (the ties, numerous on unit-weight graphs) are kept apart in a small binary heap
+ * ordered by name rank: when it runs dry, the next smallest bucket is moved into it,
+ * so equal keys pop in name-rank order like the other fringes at O(log ties) each.
+ * A queued city's key only ever decreases (searches push on improvement).
+ */
+abstract class MonotoneFringe implements Fringe {
+
+    private final int[] nameRank;
+    private final int[] next, prev;   // bucket list links by city id, -1 at the ends
+    private final int[] bucketOf;     // city id -> bucket, READY in the tie heap, -1 if not queued
+    protected final long[] keyOf;     // city id -> queued key
+    private final double[] gOf;       // city id -> g pushed with that key
+    protected final int[] head;       // bucket -> first city, -1 if empty
+    private int size = 0;
+    private double poppedG;
+    protected long last = 0;          // last popped key; every queued key is >= last
+
+    // Cities queued with key == last, as a binary heap on name rank
+    private static final int READY = -2;
+    private int[] ready = new int[16];
+    private int readySize = 0;
+
+    MonotoneFringe(int nodeCount, int buckets, int[] nameRank) {
+        this.nameRank = nameRank;
+        next = new int[nodeCount];
+        prev = new int[nodeCount];
+        bucketOf = new int[nodeCount];
+        keyOf = new long[nodeCount];
+        gOf = new double[nodeCount];
+        head = new int[buckets];
+        Arrays.fill(bucketOf, -1);
+        Arrays.fill(head, -1);
+    }
+
+    /** Bucket for a key, given the current `last`. */
+    protected abstract int bucketFor(long key);
+
+    /** Makes the smallest queued key equal to `last` and returns its bucket; only called when not empty. */
+    protected abstract int settleMinimum();
+
+    @Override public void clear() {
+        for (int b = 0; b < head.length; b++) {
+            for (int v = head[b]; v >= 0; v = next[v]) bucketOf[v] = -1;
+            head[b] = -1;
+        }
+        for (int i = 0; i < readySize; i++) bucketOf[ready[i]] = -1;
+        readySize = 0;
+        size = 0;
+        last = 0;
+    }
+
+    @Override public boolean isEmpty() { return size == 0; }
+
+    @Override public void push(int v, double g, double key) {
+        long k = Math.max((long) key, last); // pathmax: the queue is monotone
+        gOf[v] = g;
+        if (bucketOf[v] == READY) return; // already at the smallest key
+        if (bucketOf[v] >= 0) unlink(v);
+        else size++;
+        keyOf[v] = k;
+        if (k == last) addReady(v);
+        else link(v, bucketFor(k));
+    }
+
+    @Override public int pop() {
+        if (readySize == 0) {
+            int b = settleMinimum(); // every city in bucket b now has key == last
+            while (head[b] >= 0) {
+                int v = head[b];
+                unlink(v);
+                addReady(v);
+            }
+        }
+        int best = removeReady();
+        size--;
+        poppedG = gOf[best];
+        return best;
+    }
+
+    // ===== Tie heap =====
+    private void addReady(int v) {
+        if (readySize == ready.length) ready = Arrays.copyOf(ready, readySize * 2);
+        bucketOf[v] = READY;
+        int slot = readySize++;
+        int rank = nameRank[v];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (nameRank[ready[parent]] <= rank) break;
+            ready[slot] = ready[parent];
+            slot = parent;
+        }
+        ready[slot] = v;
+    }
+
+    private int removeReady() {
+        int top = ready[0];
+        bucketOf[top] = -1;
+        int v = ready[--readySize];
+        int rank = nameRank[v];
+        int slot = 0;
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= readySize) break;
+            if (child + 1 < readySize && nameRank[ready[child + 1]] < nameRank[ready[child]]) child++;
+            if (nameRank[ready[child]] >= rank) break;
+            ready[slot] = ready[child];
+            slot = child;
+        }
+        if (readySize > 0) ready[slot] = v;
+        return top;
+    }
+
+    @Override public double poppedG() { return poppedG; }
+
+    // ===== Bucket lists =====
+    protected final void link(int v, int b) {
+        bucketOf[v] = b;
+        prev[v] = -1;
+        next[v] = head[b];
+        if (head[b] >= 0) prev[head[b]] = v;
+        head[b] = v;
+    }
+
+    protected final void unlink(int v) {
+        int b = bucketOf[v];
+        if (prev[v] >= 0) next[prev[v]] = next[v];
+        else head[b] = next[v];
+        if (next[v] >= 0) prev[next[v]] = prev[v];
+        bucketOf[v] = -1;
+    }
+
+    protected final int nextInBucket(int v) { return next[v]; }
+}
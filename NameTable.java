@@ -0,0 +1,145 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * NameTable.java
+ * City name <-> dense int id dictionary keyed by the encoded bytes of the name
+ * (platform charset, the same one FileReader used to decode the input files).
+ * Lookups hash and compare bytes straight out of a (memory-mapped) buffer, so the
+ * loaders only materialize a String the first time a city is seen.
+ * Open addressing with linear probing; slots hold id + 1 (0 = empty).
+ */
+final class NameTable {
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private byte[] pool = new byte[256];   // concatenated encoded names
+    private int poolSize = 0;
+    private int[] start = new int[17];     // id -> offset in pool; start[size] == poolSize
+    private int[] hashes = new int[16];    // id -> hash, kept for rehashing
+    private String[] names = new String[16];
+    private int size = 0;
+
+    private int[] slots = new int[32];
+
+    NameTable() { }
+
+    /** Rebuilds a table from the raw arrays written to a graph snapshot; Strings are created on demand. */
+    NameTable(byte[] pool, int[] start, int[] hashes, int[] slots) {
+        this.size = hashes.length;
+        this.pool = pool;
+        this.poolSize = start[size];
+        this.start = start;
+        this.hashes = hashes;
+        this.slots = slots;
+        this.names = new String[size];
+    }
+
+    int size() { return size; }
+
+    String name(int id) {
+        String s = names[id];
+        if (s == null) names[id] = s = new String(pool, start[id], start[id + 1] - start[id], CHARSET); // benign race
+        return s;
+    }
+
+    // Raw views for GraphSnapshot (exact lengths, no spare capacity)
+    byte[] poolBytes() { return Arrays.copyOf(pool, poolSize); }
+    int[] startOffsets() { return Arrays.copyOf(start, size + 1); }
+    int[] nameHashes() { return Arrays.copyOf(hashes, size); }
+    int[] hashSlots() { return slots; }
+
+    /** Returns the id of a name, or -1 if it is not in the table. */
+    int find(String name) {
+        byte[] b = name.getBytes(CHARSET);
+        return find(ByteBuffer.wrap(b), 0, b.length);
+    }
+
+    int find(ByteBuffer src, int off, int len) {
+        int h = hash(src, off, len);
+        int mask = slots.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int s = slots[i];
+            if (s == 0) return -1;
+            if (hashes[s - 1] == h && matches(s - 1, src, off, len)) return s - 1;
+        }
+    }
+
+    int intern(String name) {
+        byte[] b = name.getBytes(CHARSET);
+        return intern(ByteBuffer.wrap(b), 0, b.length, name);
+    }
+
+    /** Interns name `id` of another table, reusing its bytes and String (used to merge loader chunks). */
+    int intern(NameTable other, int id) {
+        int from = other.start[id];
+        return intern(ByteBuffer.wrap(other.pool), from, other.start[id + 1] - from, other.names[id]);
+    }
+
+    /** Returns the id of the name stored in src[off, off + len), adding it if it is new. */
+    int intern(ByteBuffer src, int off, int len) {
+        return intern(src, off, len, null);
+    }
+
+    private int intern(ByteBuffer src, int off, int len, String known) {
+        int h = hash(src, off, len);
+        int mask = slots.length - 1;
+        int i = h & mask;
+        for (; ; i = (i + 1) & mask) {
+            int s = slots[i];
+            if (s == 0) break;
+            if (hashes[s - 1] == h && matches(s - 1, src, off, len)) return s - 1;
+        }
+
+        int id = size++;
+        if (id == names.length) {
+            int cap = Math.max(16, names.length * 2);
+            names = Arrays.copyOf(names, cap);
+            hashes = Arrays.copyOf(hashes, cap);
+            start = Arrays.copyOf(start, cap + 1);
+        }
+        if (poolSize + len > pool.length) pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + len));
+        for (int k = 0; k < len; k++) pool[poolSize + k] = src.get(off + k);
+        start[id] = poolSize;
+        poolSize += len;
+        start[id + 1] = poolSize;
+        hashes[id] = h;
+        names[id] = known != null ? known : new String(pool, start[id], len, CHARSET);
+        slots[i] = id + 1;
+
+        if (size * 2 > slots.length) rehash(slots.length * 2);
+        return id;
+    }
+
+    private boolean matches(int id, ByteBuffer src, int off, int len) {
+        int from = start[id];
+        if (start[id + 1] - from != len) return false;
+        for (int k = 0; k < len; k++) {
+            if (pool[from + k] != src.get(off + k)) return false;
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        int[] fresh = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (fresh[i] != 0) i = (i + 1) & mask;
+            fresh[i] = id + 1;
+        }
+        slots = fresh;
+    }
+
+    private static int hash(ByteBuffer src, int off, int len) {
+        int h = 0x811c9dc5; // FNV-1a, then a final avalanche so linear probing stays short
+        for (int k = 0; k < len; k++) {
+            h = (h ^ (src.get(off + k) & 0xff)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
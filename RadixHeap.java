@@ -0,0 +1,36 @@
+/**
+ * RadixHeap.java
+ * Monotone radix heap over long keys. Bucket 0 holds keys equal to the last popped
+ * key; bucket i > 0 holds keys whose highest bit differing from it is bit i - 1.
+ * When bucket 0 runs dry, the lowest non-empty bucket is scanned for its minimum,
+ * which becomes the new last key, and its cities move down to lower buckets. Each city
+ * moves down at most 64 times, so operations are O(1) amortized plus O(log C).
+ */
+final class RadixHeap extends MonotoneFringe {
+
+    private static final int BUCKETS = 65;
+
+    RadixHeap(int nodeCount, int[] nameRank) {
+        super(nodeCount, BUCKETS, nameRank);
+    }
+
+    @Override protected int bucketFor(long key) {
+        return key == last ? 0 : 64 - Long.numberOfLeadingZeros(key ^ last);
+    }
+
+    @Override protected int settleMinimum() {
+        if (head[0] >= 0) return 0;
+        int b = 1;
+        while (head[b] < 0) b++; // something is queued, so this ends
+        long min = Long.MAX_VALUE;
+        for (int v = head[b]; v >= 0; v = nextInBucket(v)) min = Math.min(min, keyOf[v]);
+        last = min;
+        for (int v = head[b]; v >= 0; ) {
+            int following = nextInBucket(v);
+            unlink(v);
+            link(v, bucketFor(keyOf[v]));
+            v = following;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,176 @@
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ResultCache.java
+ * Bounded, concurrent cache of search results keyed by (start, goal, algo) (--cache n),
+ * so repeated city pairs are answered without searching again. Results are immutable,
+ * so the cached one is returned as is, counters included.
+ *
+ * The cache is split into segments by key hash, each behind its own lock: an LRU
+ * LinkedHashMap in access order plus a TinyLFU frequency sketch. Every lookup counts
+ * the key in the sketch (a count-min sketch of 4-bit counters, halved after 10 x
+ * capacity lookups so old popularity fades). When a full segment gets a new result,
+ * it replaces the least recently used entry only if the sketch estimates the newcomer
+ * as more frequent; otherwise the newcomer is dropped. One-off queries therefore do
+ * not flush the pairs that keep coming back.
+ */
+final class ResultCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    ResultCache(int capacity) {
+        int count = Math.max(1, Math.min(SEGMENTS, capacity));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            int share = capacity / count + (i < capacity % count ? 1 : 0);
+            segments[i] = new Segment(share);
+        }
+    }
+
+    /** The cached result, or null; either way the key's frequency is counted. */
+    FindRoute.Result get(String start, String goal, String algo) {
+        Key key = new Key(start, goal, algo);
+        FindRoute.Result r = segmentFor(key).get(key);
+        if (r != null) hits.increment();
+        else misses.increment();
+        return r;
+    }
+
+    /** Offers a freshly computed result; admitted if there is room or it beats the LRU victim. */
+    void put(String start, String goal, String algo, FindRoute.Result result) {
+        Key key = new Key(start, goal, algo);
+        segmentFor(key).put(key, result);
+    }
+
+    /** One line of counters, e.g. for the batch summary. */
+    String stats() {
+        int size = 0;
+        for (Segment s : segments) size += s.size();
+        long h = hits.sum(), m = misses.sum();
+        return String.format("Cache: %d hits, %d misses (%.1f%% hit rate), %d evictions, %d rejected, %d entries",
+                h, m, h + m == 0 ? 0.0 : 100.0 * h / (h + m), evictions.sum(), rejections.sum(), size);
+    }
+
+    private Segment segmentFor(Key key) {
+        return segments[(key.hash >>> 16) % segments.length];
+    }
+
+    private static final class Key {
+        final String start, goal, algo;
+        final int hash;
+
+        Key(String start, String goal, String algo) {
+            this.start = start;
+            this.goal = goal;
+            this.algo = algo.toLowerCase(Locale.ROOT); // --algo is case-insensitive
+            int h = start.hashCode();
+            h = 31 * h + goal.hashCode();
+            h = 31 * h + this.algo.hashCode();
+            this.hash = h ^ (h >>> 16);
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return hash == k.hash && start.equals(k.start) && goal.equals(k.goal) && algo.equals(k.algo);
+        }
+
+        @Override public int hashCode() { return hash; }
+    }
+
+    private final class Segment {
+        final int capacity;
+        final LinkedHashMap<Key, FindRoute.Result> entries;
+        final FrequencySketch sketch;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true); // access order: eldest = least recently used
+            this.sketch = new FrequencySketch(capacity);
+        }
+
+        synchronized FindRoute.Result get(Key key) {
+            sketch.increment(key.hash);
+            return entries.get(key);
+        }
+
+        synchronized void put(Key key, FindRoute.Result result) {
+            if (capacity == 0) return;
+            if (entries.containsKey(key) || entries.size() < capacity) {
+                entries.put(key, result);
+                return;
+            }
+            Iterator<Map.Entry<Key, FindRoute.Result>> eldest = entries.entrySet().iterator();
+            Key victim = eldest.next().getKey();
+            if (sketch.frequency(key.hash) > sketch.frequency(victim.hash)) {
+                eldest.remove();
+                evictions.increment();
+                entries.put(key, result);
+            } else {
+                rejections.increment();
+            }
+        }
+
+        synchronized int size() { return entries.size(); }
+    }
+
+    /** Count-min sketch of 4-bit counters, 16 per long, 4 rows; halved periodically to age old counts. */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = { 0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L };
+        private static final long HALF_MASK = 0x7777777777777777L; // each nibble shifted right by one
+
+        private final long[][] rows;
+        private final int mask;       // counters per row - 1 (a power of two minus one)
+        private final int sampleSize; // increments before every counter is halved
+        private int increments = 0;
+
+        FrequencySketch(int capacity) {
+            int counters = Integer.highestOneBit(Math.max(16, capacity) * 2 - 1); // next power of two
+            rows = new long[SEEDS.length][counters / 16];
+            mask = counters - 1;
+            sampleSize = Math.max(10, 10 * capacity);
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int r = 0; r < rows.length; r++) {
+                int i = index(hash, r);
+                long[] row = rows[r];
+                int shift = (i & 15) << 2;
+                if (((row[i >>> 4] >>> shift) & 0xF) < 15) {
+                    row[i >>> 4] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++increments >= sampleSize) age();
+        }
+
+        int frequency(int hash) {
+            int min = 15;
+            for (int r = 0; r < rows.length; r++) {
+                int i = index(hash, r);
+                min = Math.min(min, (int) ((rows[r][i >>> 4] >>> ((i & 15) << 2)) & 0xF));
+            }
+            return min;
+        }
+
+        private int index(int hash, int r) {
+            long h = (hash + SEEDS[r]) * SEEDS[r];
+            return (int) (h >>> 32) & mask;
+        }
+
+        private void age() {
+            for (long[] row : rows) {
+                for (int j = 0; j < row.length; j++) row[j] = (row[j] >>> 1) & HALF_MASK;
+            }
+            increments /= 2;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * RouteServer.java
+ * --serve mode: keeps the loaded graph resident and answers
+ *   GET /route?from=<startCity>&to=<goalCity>[&algo=astar|greedy|bidijkstra|biastar|ch|delta|hl]
+ * with the same text Result.print writes (Nodes Popped / Expanded / Generated,
+ * Distance, Route), and GET /stats with the result cache counters (--cache).
+ * A missing city or an unknown algo gets a plain-text 400 with the usage line.
+ * Built on the JDK's com.sun.net.httpserver, no dependencies.
+ * Handlers run on virtual threads when the JVM has them (Java 21+); older JVMs fall
+ * back to a cached pool of platform threads. A request borrows one of FindRoute's
+ * workspaces (labels and fringes sized to the graph) for its search instead of keeping
+ * per-thread state, so a fresh virtual thread allocates nothing graph-sized; beyond
+ * --threads concurrent searches, requests wait for a workspace to come back.
+ */
+final class RouteServer {
+
+    private static final String USAGE = "Usage: /route?from=<startCity>&to=<goalCity>[&algo=astar|greedy|bidijkstra|biastar|ch|delta|hl]\n";
+
+    private final FindRoute app;
+    private final boolean hasEstimates;
+    private final String defaultAlgo;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    RouteServer(FindRoute app, boolean hasEstimates, String defaultAlgo, int port) throws IOException {
+        this.app = app;
+        this.hasEstimates = hasEstimates;
+        this.defaultAlgo = defaultAlgo;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = handlerExecutor();
+        server.createContext("/route", this::route);
+        server.createContext("/stats", this::stats);
+        server.setExecutor(executor);
+    }
+
+    void start() { server.start(); }
+
+    int port() { return server.getAddress().getPort(); }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /** Executors.newVirtualThreadPerTaskExecutor() when available, looked up reflectively so Java 8-17 still compile. */
+    private static ExecutorService handlerExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                reply(exchange, 405, "Only GET is supported\n");
+                return;
+            }
+            Map<String, String> params;
+            try {
+                params = query(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) { // malformed %-escape
+                reply(exchange, 400, USAGE);
+                return;
+            }
+            String from = params.get("from");
+            String to = params.get("to");
+            String algo = params.get("algo");
+            if (from == null || to == null || (algo != null && !FindRoute.isAlgorithm(algo))) {
+                reply(exchange, 400, USAGE);
+                return;
+            }
+            if (algo == null) algo = defaultAlgo;
+            if (!hasEstimates && "greedy".equalsIgnoreCase(algo)) algo = "astar"; // same fallback as the CLI
+
+            FindRoute.Result r = app.search(from, to, algo);
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(body, false, "UTF-8");
+            r.print(out);
+            out.flush();
+            reply(exchange, 200, body.toByteArray());
+        } catch (RuntimeException e) {
+            reply(exchange, 500, "Search failed: " + e + "\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try {
+            String stats = app.cacheStats();
+            reply(exchange, 200, (stats == null ? "Cache: off" : stats) + "\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Map<String, String> query(String raw) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+        }
+        return params;
+    }
+
+    private static void reply(HttpExchange exchange, int status, String text) throws IOException {
+        reply(exchange, status, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void reply(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.*;
+
+/**
+ * SearchContext.java
+ * Reusable per-query search state stored as primitive arrays indexed by city id
+ * (struct-of-arrays instead of one Node object per generated successor).
+ * Entries are generation-stamped: reset() just bumps the generation, so a label
+ * written by an earlier query reads back as "unreached" without clearing anything.
+ * One context (labels, fringe and counters) belongs to one thread at a time; the
+ * Graph and heuristic values it is used with are immutable and shared.
+ */
+final class SearchContext {
+
+    private final double[] g;     // best known cumulative cost
+    private final int[] parent;   // predecessor on the best known path, -1 for the root
+    private final int[] depth;    // number of edges from the root
+    private final int[] stamp;    // generation in which the label above was written
+    private int generation = 0;
+
+    final Fringe fringe;
+
+    // Counters of the current query (to mirror original output)
+    int nodesGenerated = 0;
+    int nodesPopped = 0;
+    int nodesExpanded = 0;
+    int relaxationsPruned = 0; // arcs skipped by arc flags
+
+    SearchContext(int nodeCount, Fringe fringe) {
+        this.fringe = fringe;
+        g = new double[nodeCount];
+        parent = new int[nodeCount];
+        depth = new int[nodeCount];
+        stamp = new int[nodeCount];
+    }
+
+    /** Invalidates every label in O(1); only wraps around to a real clear every 2^32 queries. */
+    void reset() {
+        if (++generation == 0) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    boolean reached(int v) { return stamp[v] == generation; }
+
+    double g(int v) { return stamp[v] == generation ? g[v] : Double.POSITIVE_INFINITY; }
+
+    int parent(int v) { return parent[v]; }
+
+    int depth(int v) { return depth[v]; }
+
+    /** City ids from the root to v (root first), walking the parent array. */
+    int[] pathTo(int v) {
+        int[] path = new int[depth[v] + 1]; // depth is the expected length; labels may have moved since
+        int len = 0;
+        for (int cur = v; cur >= 0; cur = parent[cur]) {
+            if (len == path.length) path = Arrays.copyOf(path, len * 2);
+            path[len++] = cur;
+        }
+        int[] ordered = new int[len];
+        for (int i = 0; i < len; i++) ordered[i] = path[len - 1 - i];
+        return ordered;
+    }
+
+    void label(int v, double cost, int pred, int hops) {
+        g[v] = cost;
+        parent[v] = pred;
+        depth[v] = hops;
+        stamp[v] = generation;
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.*;
+
+/**
+ * SourceTree.java
+ * Uniform-cost search from one start that is paused at each goal and resumed for the
+ * next one, for batches where many queries share a start city (h = 0, so the settled
+ * region does not depend on the goal). A goal settled by an earlier query is answered
+ * from the tree at once; otherwise the search continues where it stopped, popping
+ * exactly the cities a fresh search would pop, in the same order.
+ * The counters reported for a goal are the ones the search had when it settled that
+ * goal, so every result, route and counters included, matches a fresh search.
+ * Not thread-safe: FindRoute keeps one per thread.
+ */
+final class SourceTree {
+
+    private final Graph graph;
+    private final SearchContext ctx;
+    private final Fringe fringe;
+
+    // Counters at the moment each city was settled, valid where settledIn == generation
+    private final int[] poppedAt, expandedAt, generatedAt;
+    private final int[] settledIn;
+    private int generation = 0;
+
+    private int source = -1;
+    private int pending = -1; // goal popped by the last query, expanded on resume
+    private double pendingG;
+
+    SourceTree(Graph graph, Fringe fringe) {
+        int n = graph.nodeCount();
+        this.graph = graph;
+        this.fringe = fringe;
+        this.ctx = new SearchContext(n, fringe);
+        poppedAt = new int[n];
+        expandedAt = new int[n];
+        generatedAt = new int[n];
+        settledIn = new int[n];
+    }
+
+    FindRoute.Result search(int start, int goal) {
+        if (start != source) restart(start);
+        if (goal >= 0 && settledIn[goal] == generation) return settled(goal);
+
+        if (pending >= 0) {
+            ctx.nodesExpanded++;
+            expand(pending, pendingG);
+            pending = -1;
+        }
+        while (!fringe.isEmpty()) {
+            int v = fringe.pop();
+            double gv = fringe.poppedG();
+            ctx.nodesPopped++;
+            if (gv > ctx.g(v) + 1e-9) {
+                ctx.nodesExpanded++; // stale entry (only the pq fringe keeps superseded entries)
+                continue;
+            }
+            poppedAt[v] = ctx.nodesPopped;
+            expandedAt[v] = ctx.nodesExpanded;
+            generatedAt[v] = ctx.nodesGenerated;
+            settledIn[v] = generation;
+            if (v == goal) {
+                pending = v;
+                pendingG = gv;
+                return settled(goal);
+            }
+            ctx.nodesExpanded++;
+            expand(v, gv);
+        }
+        return FindRoute.Result.noRoute(ctx.nodesPopped, ctx.nodesExpanded, ctx.nodesGenerated);
+    }
+
+    private void restart(int start) {
+        source = start;
+        pending = -1;
+        if (++generation == 0) {
+            Arrays.fill(settledIn, 0);
+            generation = 1;
+        }
+        ctx.reset();
+        fringe.clear();
+        ctx.label(start, 0.0, -1, 0);
+        fringe.push(start, 0.0, 0.0);
+        ctx.nodesGenerated = 1;
+        ctx.nodesPopped = 0;
+        ctx.nodesExpanded = 0;
+    }
+
+    private void expand(int v, double gv) {
+        int childDepth = ctx.depth(v) + 1;
+        for (int e = graph.offsets[v], end = graph.offsets[v + 1]; e < end; e++) {
+            int to = graph.targets[e];
+            double newG = gv + graph.weights[e];
+            if (newG + 1e-9 < ctx.g(to)) {
+                ctx.label(to, newG, v, childDepth);
+                fringe.push(to, newG, newG); // decrease-key if already queued
+                ctx.nodesGenerated++;
+            }
+        }
+    }
+
+    private FindRoute.Result settled(int goal) {
+        return FindRoute.Result.route(graph, ctx.pathTo(goal), poppedAt[goal], expandedAt[goal], generatedAt[goal]);
+    }
+}
@@ -0,0 +1,62 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Engine.java
+ * Handle on the route engine. FindRoute lives in the default package, which code in a
+ * named package (as JMH requires) cannot import, so its public entry points are bound
+ * once through static final method handles; the JIT inlines them like direct calls.
+ */
+final class Engine {
+
+    private static final MethodHandle LOAD;
+    private static final MethodHandle SEARCH;
+    private static final MethodHandle MAIN;
+
+    static {
+        try {
+            Class<?> findRoute = Class.forName("FindRoute");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            LOAD = lookup.findStatic(findRoute, "load", MethodType.methodType(findRoute, String.class, String.class, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class, String.class, String.class));
+            SEARCH = lookup.findVirtual(findRoute, "search", MethodType.methodType(
+                            Class.forName("FindRoute$Result"), String.class, String.class, String.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, String.class, String.class, String.class));
+            MAIN = lookup.findStatic(findRoute, "main", MethodType.methodType(void.class, String[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Engine() { }
+
+    /** FindRoute.load(edgesFile, heurFile, fringeKind); heurFile may be null. */
+    static Object load(String edgesFile, String heurFile, String fringe) {
+        try {
+            return (Object) LOAD.invokeExact(edgesFile, heurFile, fringe);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Loading " + edgesFile + " failed", t);
+        }
+    }
+
+    /** app.search(start, goal, algo); returns the FindRoute.Result. */
+    static Object search(Object app, String start, String goal, String algo) {
+        try {
+            return (Object) SEARCH.invokeExact(app, start, goal, algo);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Search " + start + " -> " + goal + " failed", t);
+        }
+    }
+
+    /** Runs the CLI, e.g. to compile a snapshot. */
+    static void main(String... args) {
+        try {
+            MAIN.invokeExact(args);
+        } catch (Throwable t) {
+            throw new IllegalStateException("FindRoute.main failed", t);
+        }
+    }
+}
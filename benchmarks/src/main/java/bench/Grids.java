@@ -0,0 +1,79 @@
+package bench;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Random;
+
+/**
+ * Grids.java
+ * Square grid road networks for the benchmarks, written once per size into a temp
+ * directory in the engine's "CityA CityB Distance" format. Edge weights are integer
+ * kilometres in [10, 20), so 10 * Manhattan distance is an admissible heuristic;
+ * the heuristic file targets the bottom-right corner, goal().
+ */
+final class Grids {
+
+    private static final Path DIR = Paths.get(System.getProperty("java.io.tmpdir"), "find-route-bench");
+    private static final long SEED = 42L;
+
+    private Grids() { }
+
+    static int side(int nodes) { return (int) Math.ceil(Math.sqrt(nodes)); }
+
+    static String city(int row, int col) { return "R" + row + "C" + col; }
+
+    static String goal(int nodes) { return city(side(nodes) - 1, side(nodes) - 1); }
+
+    static synchronized String edges(int nodes) throws IOException {
+        Path file = DIR.resolve("grid-" + nodes + ".txt");
+        if (Files.exists(file)) return file.toString();
+        Files.createDirectories(DIR);
+        int side = side(nodes);
+        Random rnd = new Random(SEED);
+        Path tmp = Files.createTempFile(DIR, "grid", ".part");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp)) {
+            for (int r = 0; r < side; r++) {
+                for (int c = 0; c < side; c++) {
+                    if (c + 1 < side) w.write(city(r, c) + " " + city(r, c + 1) + " " + (10 + rnd.nextInt(10)) + "\n");
+                    if (r + 1 < side) w.write(city(r, c) + " " + city(r + 1, c) + " " + (10 + rnd.nextInt(10)) + "\n");
+                }
+            }
+            w.write("END OF INPUT\n");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return file.toString();
+    }
+
+    static synchronized String heuristics(int nodes) throws IOException {
+        Path file = DIR.resolve("grid-" + nodes + ".heur");
+        if (Files.exists(file)) return file.toString();
+        Files.createDirectories(DIR);
+        int side = side(nodes);
+        Path tmp = Files.createTempFile(DIR, "grid", ".part");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp)) {
+            for (int r = 0; r < side; r++) {
+                for (int c = 0; c < side; c++) {
+                    w.write(city(r, c) + " " + 10 * ((side - 1 - r) + (side - 1 - c)) + "\n");
+                }
+            }
+            w.write("END OF INPUT\n");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return file.toString();
+    }
+
+    static synchronized String snapshot(int nodes) throws IOException {
+        Path file = DIR.resolve("grid-" + nodes + ".graph");
+        if (!Files.exists(file)) Engine.main(edges(nodes), "--compile-graph", file.toString());
+        return file.toString();
+    }
+
+    /** Deterministic random cities of the grid, for query workloads. */
+    static String[] randomCities(int nodes, int count, long seed) {
+        int side = side(nodes);
+        Random rnd = new Random(seed);
+        String[] cities = new String[count];
+        for (int i = 0; i < count; i++) cities[i] = city(rnd.nextInt(side), rnd.nextInt(side));
+        return cities;
+    }
+}
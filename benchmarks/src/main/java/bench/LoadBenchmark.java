@@ -0,0 +1,48 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * LoadBenchmark.java
+ * Startup cost: parsing the text edges file versus mapping a compiled snapshot.
+ * Every invocation is a cold load of the whole graph, so single-shot timing is used.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    @Param({"10000", "250000", "1000000"})
+    int nodes;
+
+    String edges;
+    String heuristics;
+    String snapshot;
+
+    @Setup(Level.Trial)
+    public void files() throws IOException {
+        edges = Grids.edges(nodes);
+        heuristics = Grids.heuristics(nodes);
+        snapshot = Grids.snapshot(nodes);
+    }
+
+    @Benchmark
+    public Object loadText() {
+        return Engine.load(edges, null, "pq");
+    }
+
+    @Benchmark
+    public Object loadTextWithHeuristics() {
+        return Engine.load(edges, heuristics, "pq");
+    }
+
+    @Benchmark
+    public Object loadSnapshot() {
+        return Engine.load(snapshot, null, "pq");
+    }
+}
@@ -0,0 +1,68 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * SearchBenchmark.java
+ * Query cost of A*, greedy and uniform-cost search on grids of increasing size.
+ * Throughput mode gives queries/s, SampleTime the latency percentiles; run with
+ * "-prof gc" for the allocation rate per query. The grids' weights and heuristics are
+ * whole numbers, so fringe "auto" measures Dial's buckets (uniform-cost) and the radix
+ * heap (A*) against the comparison-based fringes; greedy always uses the latter.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final int QUERIES = 256;
+
+    @Param({"10000", "250000", "1000000"})
+    int nodes;
+
+    @Param({"auto", "pq", "binary", "4ary"})
+    String fringe;
+
+    Object informed;    // loaded with the corner heuristic: A* and greedy toward goal
+    Object uninformed;  // no heuristic: uniform-cost between arbitrary cities
+    String goal;
+    String[] starts;
+    String[] goals;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        informed = Engine.load(Grids.edges(nodes), Grids.heuristics(nodes), fringe);
+        uninformed = Engine.load(Grids.edges(nodes), null, fringe);
+        goal = Grids.goal(nodes);
+        starts = Grids.randomCities(nodes, QUERIES, 1L);
+        goals = Grids.randomCities(nodes, QUERIES, 2L);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int advance() { return next++ & (QUERIES - 1); }
+    }
+
+    @Benchmark
+    public Object astar(Cursor cursor) {
+        return Engine.search(informed, starts[cursor.advance()], goal, "astar");
+    }
+
+    @Benchmark
+    public Object greedy(Cursor cursor) {
+        return Engine.search(informed, starts[cursor.advance()], goal, "greedy");
+    }
+
+    @Benchmark
+    public Object uniformCost(Cursor cursor) {
+        int i = cursor.advance();
+        return Engine.search(uninformed, starts[i], goals[i], "astar");
+    }
+}